@@ -11,7 +11,7 @@
 
 package frc.robot;
 
-//import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.buttons.*;
 
@@ -178,7 +178,8 @@ public class OI {
 		joyRightBtn5.whenPressed(new DrivetrainMoveUsingCameraPidController());
 
 		joyRightBtn4 = new JoystickButton(joyRight, ControllerBase.JoystickButtons.BTN4);
-		joyRightBtn4.whenPressed(new DrivetrainTurnUsingCameraPidController());
+		//joyRightBtn4.whenPressed(new DrivetrainTurnUsingCameraPidController());
+		joyRightBtn4.whenPressed(new DrivetrainTurnUsingCameraAndGyro()); // same turn but the camera latency cannot make us oscillate
 
 		joyRightBtn3 = new JoystickButton(joyRight, ControllerBase.JoystickButtons.BTN3);
 		joyRightBtn3.whenPressed(new EjectorSetPosition(IEjector.Position.EXTENDED));
@@ -215,9 +216,11 @@ public class OI {
 
 		joyLeftBtn2 = new JoystickButton(joyLeft, ControllerBase.JoystickButtons.BTN2);
 		//joyLeftBtn2.whenPressed(new DrivetrainTurnUsingCameraPidController());
+		joyLeftBtn2.whenPressed(new DrivetrainToggleVelocityDrive());
 
 
 		// SmartDashboard Buttons
+		SmartDashboard.putData("Drivetrain Characterize", new DrivetrainCharacterize());
 
 		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTORS
 	}
@@ -8,6 +8,7 @@
 package frc.robot;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.command.Scheduler;
@@ -16,6 +17,9 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.SPI;
 import edu.wpi.first.wpilibj.ADXRS450_Gyro;
 
+import java.io.File;
+import java.util.Map;
+
 import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 import com.ctre.phoenix.motorcontrol.can.WPI_VictorSPX;
@@ -25,7 +29,7 @@ import frc.robot.interfaces.*;
 import frc.robot.sensors.*;
 //import frc.robot.commands.*;
 import frc.robot.subsystems.*;
-//import frc.robot.util.*;
+import frc.robot.util.*;
 
 
 /**
@@ -82,7 +86,30 @@ public class Robot extends TimedRobot {
 	public static final String GRASPER_OPTION_DONT_RELEASE = "Don't Release"; 
 	private String releaseSelected;
 	private SendableChooser<String> releaseChooser = new SendableChooser<>();
+	
+	public static final String MOVE_OPTION_POSITION = "Position";
+	public static final String MOVE_OPTION_MOTION_MAGIC = "Motion Magic";
+	public static final String MOVE_OPTION_PATH = "Path";
+	public static final String MOVE_OPTION_TRAJECTORY = "Trajectory";
+	private String moveOption;
+	private SendableChooser<String> moveOptionChooser = new SendableChooser<>();
+
+	// precomputed trajectories (keyed by route name)
+
+	public static Map<String, Trajectory[]> trajectories;
 
+	// loop profiling
+	
+	static final int PHASE_ACQUIRE_TARGETS_BEFORE_SCHEDULER = 0;
+	static final int PHASE_SCHEDULER = 1;
+	static final int PHASE_ACQUIRE_TARGETS_AFTER_SCHEDULER = 2;
+	static final int PHASE_UPDATE_TO_SMART_DASH = 3;
+	
+	LoopProfiler profiler = new LoopProfiler("acquire1", "scheduler", "acquire2", "smartdash");
+	
+	// telemetry
+	
+	TelemetryPublisher telemetry;
 
 	// sensors
 	
@@ -136,6 +163,8 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void robotInit() {
+		Telemetry.start(); // dashboard writes and messages are sent from a background thread
+		
 		// choosers (for auton)
 		
 		autonChooser.setDefaultOption("Do Nothing", AUTON_DO_NOTHING);
@@ -168,7 +197,17 @@ public class Robot extends TimedRobot {
 		releaseChooser.setDefaultOption("Release", GRASPER_OPTION_RELEASE);
 		releaseChooser.addOption("Don't release", GRASPER_OPTION_DONT_RELEASE);
 		SmartDashboard.putData("Release options", releaseChooser);
+		
+		moveOptionChooser.setDefaultOption("Position", MOVE_OPTION_POSITION);
+		moveOptionChooser.addOption("Motion Magic", MOVE_OPTION_MOTION_MAGIC);
+		moveOptionChooser.addOption("Path", MOVE_OPTION_PATH);
+		moveOptionChooser.addOption("Trajectory", MOVE_OPTION_TRAJECTORY);
+		SmartDashboard.putData("Move options", moveOptionChooser);
 
+		// trajectories (generated off the robot, see TrajectoryGenerator)
+
+		trajectories = TrajectoryFile.readAll(new File(Filesystem.getDeployDirectory(), TrajectoryFile.DIRECTORY));
+		Telemetry.log("Trajectories loaded for routes: " + trajectories.keySet());
 
 		// sensors
 			
@@ -179,8 +218,8 @@ public class Robot extends TimedRobot {
 		gyro.calibrate(); 
 		gyro.reset();
 
-		//camera = new HMCamera("GRIP/myContoursReport");
-		camera = new LimelightCamera();
+		//camera = new TrackingCamera(new HMCamera("GRIP/myContoursReport"));
+		camera = new TrackingCamera(new LimelightCamera()); // the tracking smooths what the camera sees
 
 		accelerometer = new HMAccelerometer();
 
@@ -226,6 +265,8 @@ public class Robot extends TimedRobot {
 		// constructed yet. Thus, their requires() statements may grab null
 		// pointers. Bad news. Don't move it.
 		oi = new OI();
+		
+		setupTelemetry();
 	} 
 
 	/**
@@ -238,6 +279,7 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void robotPeriodic() {
+		profiler.endLoop(); // each mode specific periodic function starts the loop
 	}
 
 	/**
@@ -271,13 +313,19 @@ public class Robot extends TimedRobot {
 		releaseSelected = releaseChooser.getSelected();
 		System.out.println("Release chosen: " + releaseSelected);
 		
+		moveOption = moveOptionChooser.getSelected();
+		System.out.println("Move option: " + moveOption);
+		
+		// auton paths are expressed relative to where we start
+		drivetrain.getOdometry().setPose(0, 0, 0);
+		
 		//At this point we should know what auto run, where we started, and where our plates are located.
 		//So we are ready for autonomousPeriodic to be called.
 		updateToSmartDash();
 
 		switch (autonSelected) {
 			case Robot.AUTON_CUSTOM:
-				m_autonomousCommand = new CustomAuton(startPosition, mainTarget, cameraOption, sonarOption, releaseSelected);
+				m_autonomousCommand = new CustomAuton(startPosition, mainTarget, cameraOption, sonarOption, releaseSelected, moveOption);
 
 				break;
 
@@ -302,7 +350,10 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void autonomousPeriodic() {
+		profiler.startLoop();
+		
 		Scheduler.getInstance().run();
+		profiler.mark(PHASE_SCHEDULER);
 	}
 
 	@Override
@@ -321,12 +372,19 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void teleopPeriodic() {
+		profiler.startLoop();
+		
 		camera.acquireTargets(false);
+		profiler.mark(PHASE_ACQUIRE_TARGETS_BEFORE_SCHEDULER);
 		
 		Scheduler.getInstance().run();
+		profiler.mark(PHASE_SCHEDULER);
 		
 		camera.acquireTargets(false);
+		profiler.mark(PHASE_ACQUIRE_TARGETS_AFTER_SCHEDULER);
+		
 		updateToSmartDash();
+		profiler.mark(PHASE_UPDATE_TO_SMART_DASH);
 	}
 
 	/**
@@ -334,6 +392,7 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void testPeriodic() {
+		profiler.startLoop();
 	}
 
 	/**
@@ -347,74 +406,96 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void disabledPeriodic() {	
+		profiler.startLoop();
+		
 		camera.acquireTargets(false);
+		profiler.mark(PHASE_ACQUIRE_TARGETS_BEFORE_SCHEDULER);
 
 		Scheduler.getInstance().run();
+		profiler.mark(PHASE_SCHEDULER);
 		
 		camera.acquireTargets(false);
+		profiler.mark(PHASE_ACQUIRE_TARGETS_AFTER_SCHEDULER);
+		
 		updateToSmartDash();
+		profiler.mark(PHASE_UPDATE_TO_SMART_DASH);
 	}
 	
+	// this method needs to be called once per loop (each key is only published when due and if it changed)
 	public void updateToSmartDash()
 	{
+		telemetry.publish();
+	}
+
+	// registers the keys sent to the dashboard along with their publish rates (in Hz) and epsilons
+	private void setupTelemetry()
+	{
+		telemetry = new TelemetryPublisher();
+		
 		// Send Gyro val to Dashboard
-		SmartDashboard.putNumber("Gyro Value", gyro.getAngle());
-		SmartDashboard.putNumber("Pressure", pressureSensor.getPressurePSI());
+		telemetry.addNumber("Gyro Value", () -> gyro.getAngle(), 0.1, 50);
+		telemetry.addNumber("Pressure", () -> pressureSensor.getPressurePSI(), 0.5, 2);
 			
-		SmartDashboard.putNumber("Right Value", drivetrain.getRightPosition());
-		SmartDashboard.putNumber("Left Value", drivetrain.getLeftPosition());
-		SmartDashboard.putNumber("Right Enc Value", drivetrain.getRightEncoderPosition());
-		SmartDashboard.putNumber("Left Enc Value", drivetrain.getLeftEncoderPosition());
-		SmartDashboard.putNumber("Right Enc Velocity", drivetrain.getRightEncoderVelocity());
-		SmartDashboard.putNumber("Left Enc Velocity", drivetrain.getLeftEncoderVelocity());
-		SmartDashboard.putBoolean("isMoving?", drivetrain.isMoving());
-		SmartDashboard.putBoolean("isTurning?", drivetrain.isTurning());
-		SmartDashboard.putBoolean("isStalled?", drivetrain.isStalled());
-		
-		SmartDashboard.putBoolean("isCompromised?", DriverStation.getInstance().isDisabled());
-		
-		SmartDashboard.putNumber("Distance to Target", camera.getDistanceToCompositeTargetUsingVerticalFov());
-		SmartDashboard.putNumber("Angle to Target", camera.getAngleToTurnToCompositeTarget());
-		SmartDashboard.putNumber("Distance to Target Using Horizontal FOV", camera.getDistanceToCompositeTargetUsingHorizontalFov());
-		
-		SmartDashboard.putBoolean("Elevator Limit Switch", elevatorControl.getLimitSwitchState());
-		SmartDashboard.putNumber("Elevator Position", elevatorControl.getPosition());
-		SmartDashboard.putNumber("Elevator Enc Position", elevatorControl.getEncoderPosition());
-		SmartDashboard.putBoolean("Elevator IsHoming?", elevatorControl.isHoming());
-		SmartDashboard.putBoolean("Elevator IsMoving?", elevatorControl.isMoving());
-		SmartDashboard.putNumber("Elevator Target", elevatorControl.getTarget());
-		SmartDashboard.putBoolean("Elevator Has Been Homed?", elevatorControl.hasBeenHomed());
-		SmartDashboard.putBoolean("Elevator isDown", elevatorControl.isDown());
-		SmartDashboard.putBoolean("Elevator isMidway", elevatorControl.isMidway());
-		SmartDashboard.putBoolean("Elevator isUp", elevatorControl.isUp());
-		
-		SmartDashboard.putBoolean("Hinge Limit Switch", hingeControl.getLimitSwitchState());
-		SmartDashboard.putNumber("Hinge Position", hingeControl.getPosition());
-		SmartDashboard.putNumber("Hinge Enc Position", hingeControl.getEncoderPosition());
-		SmartDashboard.putBoolean("Hinge IsHoming?", hingeControl.isHoming());
-		SmartDashboard.putBoolean("Hinge IsMoving?", hingeControl.isMoving());
-		SmartDashboard.putNumber("Hinge Target", hingeControl.getTarget());
-		SmartDashboard.putBoolean("Hinge Has Been Homed?", hingeControl.hasBeenHomed());
-		SmartDashboard.putBoolean("Hinge isDown", hingeControl.isDown());
-		SmartDashboard.putBoolean("Hinge isMidway", hingeControl.isMidway());
-		SmartDashboard.putBoolean("Hinge isUp", hingeControl.isUp());
-		
-		SmartDashboard.putBoolean("Gyro Manually Calibrated?",hasGyroBeenManuallyCalibratedAtLeastOnce);
-		
-		SmartDashboard.putNumber("Tilt", accelerometer.getTilt());
-		
-		SmartDashboard.putNumber("Range to target", sonar.getRangeInInches());
-		SmartDashboard.putNumber("Sonar Voltage", sonar.getVoltage()); 
-		
-		SmartDashboard.putBoolean("Grasper IsGrasping?", grasper.isGrasping());
-		SmartDashboard.putBoolean("Grasper IsReleasing?", grasper.isReleasing());
-		
-		SmartDashboard.putString("Auton selected", autonChooser.getSelected());	
-		SmartDashboard.putString("Start position", startPositionChooser.getSelected());
-		SmartDashboard.putString("Main target", mainTargetChooser.getSelected());
-		SmartDashboard.putString("Camera option", cameraOptionChooser.getSelected());
-		SmartDashboard.putString("Sonar option", sonarOptionChooser.getSelected());
-		SmartDashboard.putString("Release chosen", releaseChooser.getSelected());
+		telemetry.addNumber("Right Value", () -> drivetrain.getRightPosition(), 0, 50);
+		telemetry.addNumber("Left Value", () -> drivetrain.getLeftPosition(), 0, 50);
+		telemetry.addNumber("Right Enc Value", () -> drivetrain.getRightEncoderPosition(), 0, 50);
+		telemetry.addNumber("Left Enc Value", () -> drivetrain.getLeftEncoderPosition(), 0, 50);
+		telemetry.addNumber("Right Enc Velocity", () -> drivetrain.getRightEncoderVelocity(), 0, 50);
+		telemetry.addNumber("Left Enc Velocity", () -> drivetrain.getLeftEncoderVelocity(), 0, 50);
+		telemetry.addBoolean("isMoving?", () -> drivetrain.isMoving(), 50);
+		telemetry.addBoolean("isTurning?", () -> drivetrain.isTurning(), 50);
+		telemetry.addBoolean("isStalled?", () -> drivetrain.isStalled(), 50);
+		telemetry.addBoolean("isFollowingTrajectory?", () -> drivetrain.isFollowingTrajectory(), 50);
+		telemetry.addBoolean("isFollowingPath?", () -> drivetrain.isFollowingPath(), 50);
+		telemetry.addBoolean("Velocity Drive?", () -> drivetrain.isVelocityDriveEnabled(), 10);
+		telemetry.addString("Pose", () -> drivetrain.getPose().toString(), 10);
+		telemetry.addNumber("Motion Profile Underruns", () -> drivetrain.getMotionProfileUnderrunCount(), 0, 5);
+		
+		telemetry.addBoolean("isCompromised?", () -> DriverStation.getInstance().isDisabled(), 10);
+		
+		telemetry.addNumber("Distance to Target", () -> camera.getDistanceToCompositeTargetUsingVerticalFov(), 0.5, 10);
+		telemetry.addNumber("Angle to Target", () -> camera.getAngleToTurnToCompositeTarget(), 0.1, 10);
+		telemetry.addNumber("Distance to Target Using Horizontal FOV", () -> camera.getDistanceToCompositeTargetUsingHorizontalFov(), 0.5, 10);
+		
+		telemetry.addBoolean("Elevator Limit Switch", () -> elevatorControl.getLimitSwitchState(), 10);
+		telemetry.addNumber("Elevator Position", () -> elevatorControl.getPosition(), 0.1, 10);
+		telemetry.addNumber("Elevator Enc Position", () -> elevatorControl.getEncoderPosition(), 0, 10);
+		telemetry.addBoolean("Elevator IsHoming?", () -> elevatorControl.isHoming(), 50);
+		telemetry.addBoolean("Elevator IsMoving?", () -> elevatorControl.isMoving(), 50);
+		telemetry.addNumber("Elevator Target", () -> elevatorControl.getTarget(), 0, 10);
+		telemetry.addBoolean("Elevator Has Been Homed?", () -> elevatorControl.hasBeenHomed(), 10);
+		telemetry.addBoolean("Elevator isDown", () -> elevatorControl.isDown(), 10);
+		telemetry.addBoolean("Elevator isMidway", () -> elevatorControl.isMidway(), 10);
+		telemetry.addBoolean("Elevator isUp", () -> elevatorControl.isUp(), 10);
+		
+		telemetry.addBoolean("Hinge Limit Switch", () -> hingeControl.getLimitSwitchState(), 10);
+		telemetry.addNumber("Hinge Position", () -> hingeControl.getPosition(), 0.01, 10);
+		telemetry.addNumber("Hinge Enc Position", () -> hingeControl.getEncoderPosition(), 0, 10);
+		telemetry.addBoolean("Hinge IsHoming?", () -> hingeControl.isHoming(), 50);
+		telemetry.addBoolean("Hinge IsMoving?", () -> hingeControl.isMoving(), 50);
+		telemetry.addNumber("Hinge Target", () -> hingeControl.getTarget(), 0, 10);
+		telemetry.addBoolean("Hinge Has Been Homed?", () -> hingeControl.hasBeenHomed(), 10);
+		telemetry.addBoolean("Hinge isDown", () -> hingeControl.isDown(), 10);
+		telemetry.addBoolean("Hinge isMidway", () -> hingeControl.isMidway(), 10);
+		telemetry.addBoolean("Hinge isUp", () -> hingeControl.isUp(), 10);
+		
+		telemetry.addBoolean("Gyro Manually Calibrated?", () -> hasGyroBeenManuallyCalibratedAtLeastOnce, 1);
+		
+		telemetry.addNumber("Tilt", () -> accelerometer.getTilt(), 0.5, 5);
+		
+		telemetry.addNumber("Range to target", () -> sonar.getRangeInInches(), 0.5, 10);
+		telemetry.addNumber("Sonar Voltage", () -> sonar.getVoltage(), 0.01, 10); 
+		
+		telemetry.addBoolean("Grasper IsGrasping?", () -> grasper.isGrasping(), 50);
+		telemetry.addBoolean("Grasper IsReleasing?", () -> grasper.isReleasing(), 50);
+		
+		telemetry.addString("Auton selected", () -> autonChooser.getSelected(), 1);	
+		telemetry.addString("Start position", () -> startPositionChooser.getSelected(), 1);
+		telemetry.addString("Main target", () -> mainTargetChooser.getSelected(), 1);
+		telemetry.addString("Camera option", () -> cameraOptionChooser.getSelected(), 1);
+		telemetry.addString("Sonar option", () -> sonarOptionChooser.getSelected(), 1);
+		telemetry.addString("Release chosen", () -> releaseChooser.getSelected(), 1);
+		telemetry.addString("Move option", () -> moveOptionChooser.getSelected(), 1);
 	}
 
 	public static void setGyroHasBeenManuallyCalibratedAtLeastOnce(boolean flag) {
@@ -0,0 +1,186 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.auton;
+
+import frc.robot.util.AutonRoute;
+
+/**
+ * This class lists the routes that can be driven as paths or precomputed trajectories.
+ *
+ * <p>The route names are also the names of the trajectory files in the deploy directory.
+ * Nothing here depends on WPILib so the trajectory generator can run off the robot.
+ */
+public class AutonRoutes {
+
+	// same route as Hab2LeftToRocket
+	public static final AutonRoute HAB2_LEFT_TO_ROCKET = new AutonRoute("Hab2LeftToRocket")
+		// Move forward 125 in. (started on LS), turn 90 degrees to the left and move forward 70 in. without stopping
+		.move(125).corner(-90).move(70)
+		// Turn 45 degrees to the right
+		.turn(45)
+		// Vision delivery (to RLF1)
+		.deliverHatchPanel()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 135 degrees to the left
+		.turn(-135)
+		// Move forward 177 in.
+		.move(177)
+		// (another hatch received from LH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 180 degrees to the left
+		.turn(-180)
+		// Move forward 177 in.
+		.move(177)
+		// Vision delivery (to RLF2)
+		.deliverHatchPanel()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 180 degrees to the left
+		.turn(-180)
+		// Move forward 177 in.
+		.move(177)
+		// (another hatch received from LH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 145 degrees to the left
+		.turn(-145)
+		// Move forward 258 in.
+		.move(258)
+		// Turn 35 degrees to the right
+		.turn(35)
+		// Vision target (to CSL3)
+		.deliverCargo()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 110 degrees to the right
+		.turn(110)
+		// Move forward 258 in.
+		.move(258)
+		// (another hatch received from LH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 113 degrees to the left
+		.turn(-113)
+		// Move forward 254 in.
+		.move(254)
+		// Turn 67 degrees to the right
+		.turn(67)
+		// Vision target (to CSL2)
+		.deliverCargo()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 110 degrees to the right
+		.turn(110)
+		// Move forward 254 in.
+		.move(254)
+		// (received another hatch from LH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 116 degrees to the right
+		.turn(116)
+		// Move forward 276 in.
+		.move(276)
+		// Turn 64 degrees to the right
+		.turn(64)
+		// Visual targeting (to CSL1)
+		.deliverCargo()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 90 degrees to the right
+		.turn(90)
+		// Move forward 205 in. (robot is now in front of HAB)
+		.move(205)
+		.end();
+
+	// same route as Hab2RightToRocket
+	public static final AutonRoute HAB2_RIGHT_TO_ROCKET = new AutonRoute("Hab2RightToRocket")
+		// Move forward 125 in. (started off on RS), turn 90 degrees to the right and move forward 70 in. without stopping
+		.move(125).corner(90).move(70)
+		// Turn 45 degrees to the left
+		.turn(-45)
+		// Vision target (RRF1)
+		.deliverHatchPanel()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 135 degrees to the right
+		.turn(135)
+		// Move forward 177 in.
+		.move(177)
+		// (another hatch received from RH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 180 degrees to the right
+		.turn(180)
+		// Move forward 177 in.
+		.move(177)
+		// Vision target (to RRF2)
+		.deliverHatchPanel()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 180 degrees to the right
+		.turn(180)
+		// Move forward 177 in.
+		.move(177)
+		// (another hatch received from RH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 145 degrees to the right
+		.turn(145)
+		// Move forward 234 in.
+		.move(234)
+		// Turn 35 degrees to the left
+		.turn(-35)
+		// Vision target (to CSR3)
+		.deliverCargo()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 110 degrees to the left
+		.turn(-110)
+		// Move forward 258 in.
+		.move(258)
+		// (another hatch received from RH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 113 degrees to the right
+		.turn(113)
+		// Move forward 254 in.
+		.move(254)
+		// Turn 67 degrees to the left
+		.turn(-67)
+		// Vision target (to CSR2)
+		.deliverCargo()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 110 degrees to the left
+		.turn(-110)
+		// Move forward 254 in.
+		.move(254)
+		// (another hatch received from RH)
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 116 degrees to the left
+		.turn(-116)
+		// Move forward 276 in.
+		.move(276)
+		// Turn 64 degrees to the right
+		.turn(64)
+		// Visual delivery (CSL1)
+		.deliverCargo()
+		// Move backwards 24 in.
+		.move(-24)
+		// Turn 90 degrees to the left
+		.turn(-90)
+		// Move forward 205 in. (robot is now in front of HAB)
+		.move(205)
+		.end();
+
+	// the routes we generate trajectories for
+	public static final AutonRoute[] ALL = { HAB2_LEFT_TO_ROCKET, HAB2_RIGHT_TO_ROCKET };
+}
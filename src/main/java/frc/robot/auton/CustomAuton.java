@@ -9,6 +9,9 @@ package frc.robot.auton;
 
 import edu.wpi.first.wpilibj.command.CommandGroup;
 import frc.robot.Robot;
+import frc.robot.util.AutonRoute;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Trajectory;
 
 public class CustomAuton extends CommandGroup {
 
@@ -17,17 +20,23 @@ public class CustomAuton extends CommandGroup {
 	String cameraOption;
 	String sonarOption;
 	String release;
+	String moveOption;
 
 	/**
 	 * Add your docs here.
 	 */
-	public CustomAuton(String startPosition_in, String mainTarget_in, String cameraOption_in,	String sonarOption_in, String release_in) {
+	public CustomAuton(String startPosition_in, String mainTarget_in, String cameraOption_in,	String sonarOption_in, String release_in, String moveOption_in) {
 
 		startPosition = startPosition_in;
 		mainTarget = mainTarget_in;
 		cameraOption = cameraOption_in;
 		sonarOption = sonarOption_in;
 		release = release_in; 
+		moveOption = moveOption_in;
+		
+		boolean useMotionMagic = Robot.MOVE_OPTION_MOTION_MAGIC.equals(moveOption);
+		boolean usePaths = Robot.MOVE_OPTION_PATH.equals(moveOption); // only available for some routes
+		boolean useTrajectories = Robot.MOVE_OPTION_TRAJECTORY.equals(moveOption); // same routes, precomputed
 
 		// Add Commands here:
 		// e.g. addSequential(new Command1());
@@ -92,10 +101,14 @@ public class CustomAuton extends CommandGroup {
 			case Robot.START_POSITION_HAB2_LEFT:
 				switch (mainTarget) {
 					case Robot.MAIN_TARGET_ROCKET:
-						addSequential(new Hab2LeftToRocket());
+						if (usePaths || useTrajectories) {
+							addSequential(getRouteCommandGroup(AutonRoutes.HAB2_LEFT_TO_ROCKET, useTrajectories));
+						} else {
+							addSequential(new Hab2LeftToRocket(useMotionMagic));
+						}
 						break;
 					case Robot.MAIN_TARGET_SHIP:
-						addSequential(new Hab2LeftToRocket());
+						addSequential(new Hab2LeftToRocket(useMotionMagic));
 						break;	
 					default:
 
@@ -106,10 +119,14 @@ public class CustomAuton extends CommandGroup {
 			case Robot.START_POSITION_HAB2_RIGHT:
 				switch (mainTarget) {
 					case Robot.MAIN_TARGET_ROCKET:
-						addSequential(new Hab2RightToRocket());
+						if (usePaths || useTrajectories) {
+							addSequential(getRouteCommandGroup(AutonRoutes.HAB2_RIGHT_TO_ROCKET, useTrajectories));
+						} else {
+							addSequential(new Hab2RightToRocket(useMotionMagic));
+						}
 						break;
 					case Robot.MAIN_TARGET_SHIP:
-						addSequential(new Hab2RightToShip());
+						addSequential(new Hab2RightToShip(useMotionMagic));
 						break;	
 					default:
 
@@ -122,4 +139,15 @@ public class CustomAuton extends CommandGroup {
 				break;
 		} // end switch
 	}
+
+	// the trajectories were loaded at robotInit so there is nothing to generate here
+	private static RouteCommandGroup getRouteCommandGroup(AutonRoute route, boolean useTrajectories) {
+		Trajectory[] trajectories = useTrajectories && Robot.trajectories != null ? Robot.trajectories.get(route.getName()) : null;
+
+		if (useTrajectories && trajectories == null) {
+			Telemetry.log("CustomAuton: no trajectories for route " + route.getName() + ", following paths instead");
+		}
+
+		return new RouteCommandGroup(route, trajectories);
+	}
 }
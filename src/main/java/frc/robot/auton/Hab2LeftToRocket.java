@@ -11,10 +11,13 @@ import edu.wpi.first.wpilibj.command.CommandGroup;
 import frc.robot.commands.*;
 
 public class Hab2LeftToRocket extends CommandGroup {
+
+	static final double CORNER_RADIUS_INCHES = 24; // radius of the arc replacing the first turn
+
 	/**
 	 * Add your docs here.
 	 */
-	public Hab2LeftToRocket() {
+	public Hab2LeftToRocket(boolean useMotionMagic) {
 		// Add Commands here:
 		// e.g. addSequential(new Command1());
 		// addSequential(new Command2());
@@ -32,14 +35,14 @@ public class Hab2LeftToRocket extends CommandGroup {
 		// a CommandGroup containing them would require both the chassis and the
 		// arm.
 
-		// Move forward 125 in.  (Started on LS) 
-		addSequential(new DrivetrainMoveDistance(125));
+		// Move forward 101 in. (Started on LS) (the arc covers the last 24 in.) and keep going
+		addSequential(new DrivetrainMoveDistance(125 - CORNER_RADIUS_INCHES, useMotionMagic, true));
 
-		// Turn 90 degrees to the left 
-		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
+		// Turn 90 degrees to the left while moving (same end point as turning in place at 125 in.) and keep going
+		addSequential(new DrivetrainMoveAlongArc(CORNER_RADIUS_INCHES, -90, true));
 
-		// Move forward 70 in. 
-		addSequential(new DrivetrainMoveDistance(70));  
+		// Move forward 46 in. (the arc covered the first 24 in.)
+		addSequential(new DrivetrainMoveDistance(70 - CORNER_RADIUS_INCHES, useMotionMagic));
 
 		// Turn 45 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(45));
@@ -48,47 +51,47 @@ public class Hab2LeftToRocket extends CommandGroup {
 		addSequential(new HatchPanelDeliver());
 
 		// Move 24 inches back
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 135 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-135));
 
 		// Move forward 177 in.  
-		addSequential(new DrivetrainMoveDistance(177)); 
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic)); 
 
 		// (another hatch received from LH)
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 180 degrees to the left  
 		addSequential(new DrivetrainTurnAngleUsingPidController(-180));
 
 		// Move forward 177 in.  
-		addSequential(new DrivetrainMoveDistance(177));
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic));
 
 		// Vision delivery (to RLF2) 
 		addSequential(new HatchPanelDeliver()); 
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 180 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-180));
 
 		// Move forward 177 in.
-		addSequential(new DrivetrainMoveDistance(177));
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic));
 
 		// (another hatch received from LH)
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 145 degrees to the left
 		addSequential(new DrivetrainTurnAngleUsingPidController(-145)); 
 
 		// Move 258 in. forward 
-		addSequential(new DrivetrainMoveDistance(258));
+		addSequential(new DrivetrainMoveDistance(258, useMotionMagic));
 
 		// Turn 35 degrees to the right
 		addSequential(new DrivetrainTurnAngleUsingPidController(35));  
@@ -97,24 +100,24 @@ public class Hab2LeftToRocket extends CommandGroup {
 		addSequential(new CargoDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 110 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(110));
 
 		// Move forward 258 in. (is that the correct distance?)
-		addSequential(new DrivetrainMoveDistance(258));
+		addSequential(new DrivetrainMoveDistance(258, useMotionMagic));
 
 		// (another hatch received from LH)
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 113 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-113));
 
 		// Move forward 254 in.
-		addSequential(new DrivetrainMoveDistance(254));
+		addSequential(new DrivetrainMoveDistance(254, useMotionMagic));
 
 		// Turn 67 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(67));
@@ -123,24 +126,24 @@ public class Hab2LeftToRocket extends CommandGroup {
 		addSequential(new CargoDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 110 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(110));
 
 		// Move forward 254 in.
-		addSequential(new DrivetrainMoveDistance(254)); 
+		addSequential(new DrivetrainMoveDistance(254, useMotionMagic)); 
 
 		// (received another hatch from LH)
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 116 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(116));
 
 		// Move forward 276 in.
-		addSequential(new DrivetrainMoveDistance(276));
+		addSequential(new DrivetrainMoveDistance(276, useMotionMagic));
 
 		// Turn 64 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(64));
@@ -149,12 +152,12 @@ public class Hab2LeftToRocket extends CommandGroup {
 		addSequential(new CargoDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 205 in. (robot is now in front of HAB)
-		addSequential(new DrivetrainMoveDistance(205)); 
+		addSequential(new DrivetrainMoveDistance(205, useMotionMagic)); 
 	}
 }
@@ -14,7 +14,7 @@ public class Hab2LeftToShip extends CommandGroup {
 	/**
 	 * Add your docs here.
 	 */
-	public Hab2LeftToShip() {
+	public Hab2LeftToShip(boolean useMotionMagic) {
 		// Add Commands here:
 		// e.g. addSequential(new Command1());
 		// addSequential(new Command2());
@@ -33,13 +33,13 @@ public class Hab2LeftToShip extends CommandGroup {
 		// arm.
 
 		// Move forward 76 in. (started off on LS) 
-		addSequential(new DrivetrainMoveDistance(76));
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 42 in. 
-		addSequential(new DrivetrainMoveDistance(42));
+		addSequential(new DrivetrainMoveDistance(42, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
@@ -48,30 +48,30 @@ public class Hab2LeftToShip extends CommandGroup {
 		// TODO
 
 		// Reverse 2 ft. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 124 in. 
-		addSequential(new DrivetrainMoveDistance(124));
+		addSequential(new DrivetrainMoveDistance(124, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 76 in. (to LH)
-		addSequential(new DrivetrainMoveDistance(76)); 
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic)); 
 
 		// ?
 
 		// Reverse 76 in. (from LH) 
-		addSequential(new DrivetrainMoveDistance(-76));
+		addSequential(new DrivetrainMoveDistance(-76, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 145 in. (to line up with CSRF) 
-		addSequential(new DrivetrainMoveDistance(145));
+		addSequential(new DrivetrainMoveDistance(145, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
@@ -80,64 +80,64 @@ public class Hab2LeftToShip extends CommandGroup {
 		// TODO
 
 		// Reverse 2 ft. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 145 in. 
-		addSequential(new DrivetrainMoveDistance(145));
+		addSequential(new DrivetrainMoveDistance(145, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 76 in. (to LH) 
-		addSequential(new DrivetrainMoveDistance(76));
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));
 
 		// ?
 
 		// Reverse 2 ft  
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 180 degrees to the left
 		addSequential(new DrivetrainTurnAngleUsingPidController(-180));  
 
 		// Move forward 177 in. 
-		addSequential(new DrivetrainMoveDistance(177));
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic));
 
 		// ?
 
 		// Reverse 2 ft 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 180 degrees to the left  
 		addSequential(new DrivetrainTurnAngleUsingPidController(-180));
 
 		// Move forward 177 in.
-		addSequential(new DrivetrainMoveDistance(177));
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic));
 
 		// ?
 
 		// Reverse 76 in. 
-		addSequential(new DrivetrainMoveDistance(-76));
+		addSequential(new DrivetrainMoveDistance(-76, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 124 in. 
-		addSequential(new DrivetrainMoveDistance(124));
+		addSequential(new DrivetrainMoveDistance(124, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 106  
-		addSequential(new DrivetrainMoveDistance(106));
+		addSequential(new DrivetrainMoveDistance(106, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Reverse 2 ft. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// is something missing here?
 
@@ -145,19 +145,19 @@ public class Hab2LeftToShip extends CommandGroup {
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 160 in. (is that the right distance?)
-		addSequential(new DrivetrainMoveDistance(160));
+		addSequential(new DrivetrainMoveDistance(160, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 76 in. 
-		addSequential(new DrivetrainMoveDistance(76));
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 230 in. 
-		addSequential(new DrivetrainMoveDistance(230));
+		addSequential(new DrivetrainMoveDistance(230, useMotionMagic));
 
 	}
 }
@@ -10,10 +10,13 @@ package frc.robot.auton;
 import edu.wpi.first.wpilibj.command.CommandGroup;
 import frc.robot.commands.*;
 public class Hab2RightToRocket extends CommandGroup {
+
+	static final double CORNER_RADIUS_INCHES = 24; // radius of the arc replacing the first turn
+
 	/**
 	 * Add your docs here.
 	 */
-	public Hab2RightToRocket() {
+	public Hab2RightToRocket(boolean useMotionMagic) {
 		// Add Commands here:
 		// e.g. addSequential(new Command1());
 		// addSequential(new Command2());
@@ -31,14 +34,14 @@ public class Hab2RightToRocket extends CommandGroup {
 		// a CommandGroup containing them would require both the chassis and the
 		// arm.
 
-		// Move forward 125 in. (started off on RS) 
-		addSequential(new DrivetrainMoveDistance(125));
+		// Move forward 101 in. (started off on RS) (the arc covers the last 24 in.) and keep going
+		addSequential(new DrivetrainMoveDistance(125 - CORNER_RADIUS_INCHES, useMotionMagic, true));
 
-		// Turn 90 degrees to the right 
-		addSequential(new DrivetrainTurnAngleUsingPidController(90));
+		// Turn 90 degrees to the right while moving (same end point as turning in place at 125 in.) and keep going
+		addSequential(new DrivetrainMoveAlongArc(CORNER_RADIUS_INCHES, 90, true));
 
-		// Move forward 70 in. 
-		addSequential(new DrivetrainMoveDistance(70));
+		// Move forward 46 in. (the arc covered the first 24 in.)
+		addSequential(new DrivetrainMoveDistance(70 - CORNER_RADIUS_INCHES, useMotionMagic));
 
 		// Turn 45 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-45));
@@ -47,47 +50,47 @@ public class Hab2RightToRocket extends CommandGroup {
 		addSequential(new HatchPanelDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 135 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(135));
 
 		// Move forward 177 in.
-		addSequential(new DrivetrainMoveDistance(177)); 
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic)); 
 
 		// (another hatch received from RH)
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 180 degrees to the right
 		addSequential(new DrivetrainTurnAngleUsingPidController(180));
 
 		// Move forward 177 in.
-		addSequential(new DrivetrainMoveDistance(177)); 
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic)); 
 
 		// Vision target (to RRF2) 
 		addSequential(new HatchPanelDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 180 degrees to the right
 		addSequential(new DrivetrainTurnAngleUsingPidController(180));
 
 		// Move forward 177 in.
-		addSequential(new DrivetrainMoveDistance(177)); 
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic)); 
 
 		// (another hatch received from RH)
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 145 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(145));
 
 		// Move forward 234 in. 
-		addSequential(new DrivetrainMoveDistance(234));
+		addSequential(new DrivetrainMoveDistance(234, useMotionMagic));
 
 		// Turn 35 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-35));
@@ -96,24 +99,24 @@ public class Hab2RightToRocket extends CommandGroup {
 		addSequential(new CargoDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 110 degrees to the left
 		addSequential(new DrivetrainTurnAngleUsingPidController(-110)); 
 
 		// Move forward 258 in.
-		addSequential(new DrivetrainMoveDistance(258)); 
+		addSequential(new DrivetrainMoveDistance(258, useMotionMagic)); 
 
 		// (another hatch received form RH)
 
 		// Move backward 24 in.  
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 113 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(113));
 
 		// Move forward 254 in. 
-		addSequential(new DrivetrainMoveDistance(254));
+		addSequential(new DrivetrainMoveDistance(254, useMotionMagic));
 
 		// Turn 67 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-67));
@@ -122,24 +125,24 @@ public class Hab2RightToRocket extends CommandGroup {
 		addSequential(new CargoDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 110 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-110));
 
 		// Move forward 254 in.
-		addSequential(new DrivetrainMoveDistance(254));
+		addSequential(new DrivetrainMoveDistance(254, useMotionMagic));
 
 		// (another hatch received from RH) 
 		
 		// Move backwards 24 in.  
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 116 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-116));
 
 		// Move forward 276 in. 
-		addSequential(new DrivetrainMoveDistance(276));
+		addSequential(new DrivetrainMoveDistance(276, useMotionMagic));
 
 		// Turn 64 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(64));
@@ -148,12 +151,12 @@ public class Hab2RightToRocket extends CommandGroup {
 		addSequential(new CargoDeliver());
 
 		// Move backwards 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 90 degrees to the left  
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move foward 205 in. (robot is now in front of HAB)
-		addSequential(new DrivetrainMoveDistance(205));   
+		addSequential(new DrivetrainMoveDistance(205, useMotionMagic));   
 	}
 }
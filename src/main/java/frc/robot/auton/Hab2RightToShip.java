@@ -14,7 +14,7 @@ public class Hab2RightToShip extends CommandGroup {
 	/**
 	 * Add your docs here.
 	 */
-	public Hab2RightToShip() {
+	public Hab2RightToShip(boolean useMotionMagic) {
 		// Add Commands here:
 		// e.g. addSequential(new Command1());
 		// addSequential(new Command2());
@@ -33,13 +33,13 @@ public class Hab2RightToShip extends CommandGroup {
 		// arm.
 
 		// Move forward 76 in. (from RS) 
-		addSequential(new DrivetrainMoveDistance(76));		
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));		
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 42 in. 
-		addSequential(new DrivetrainMoveDistance(42));
+		addSequential(new DrivetrainMoveDistance(42, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
@@ -48,30 +48,30 @@ public class Hab2RightToShip extends CommandGroup {
 		// TODO
 
 		// Reverse 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 124 in. 
-		addSequential(new DrivetrainMoveDistance(124));
+		addSequential(new DrivetrainMoveDistance(124, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 76 in. (to RH) 
-		addSequential(new DrivetrainMoveDistance(76));
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));
 
 		// ?
 
 		// Reverse 76 in. (from RH) 
-		addSequential(new DrivetrainMoveDistance(-76));
+		addSequential(new DrivetrainMoveDistance(-76, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 145 in. (to line up with CSRF)
-		addSequential(new DrivetrainMoveDistance(145)); 
+		addSequential(new DrivetrainMoveDistance(145, useMotionMagic)); 
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
@@ -80,87 +80,87 @@ public class Hab2RightToShip extends CommandGroup {
 		// TODO
 
 		// Reverse 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 
 		// Turn 90 degrees to the left 
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90));
 
 		// Move forward 145 in. 
-		addSequential(new DrivetrainMoveDistance(145));
+		addSequential(new DrivetrainMoveDistance(145, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 76 in. (to RH) 
-		addSequential(new DrivetrainMoveDistance(76));
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));
 
 		// ?
 
 		// Reverse 24 in.
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 		
 		// Turn 180 degrees
 		addSequential(new DrivetrainTurnAngleUsingPidController(180)); 
 
 		// Move forward 177 in. 
-		addSequential(new DrivetrainMoveDistance(177));
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic));
 
 		// ?
 
 		// Revers 24 in. 
-		addSequential(new DrivetrainMoveDistance(-24));
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic));
 		
 		// turn 180 degrees
 		addSequential(new DrivetrainTurnAngleUsingPidController(180));  
 
 		// Move forward 177 in.  
-		addSequential(new DrivetrainMoveDistance(177));
+		addSequential(new DrivetrainMoveDistance(177, useMotionMagic));
 
 		// ?
 
 		// Reverse 76 in. 
-		addSequential(new DrivetrainMoveDistance(-76));
+		addSequential(new DrivetrainMoveDistance(-76, useMotionMagic));
 
 		// Turn 90 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 124 in. 
-		addSequential(new DrivetrainMoveDistance(124));
+		addSequential(new DrivetrainMoveDistance(124, useMotionMagic));
 
 		// Turn 90 degrees to the right  
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 106 in. 
-		addSequential(new DrivetrainMoveDistance(106));
+		addSequential(new DrivetrainMoveDistance(106, useMotionMagic));
 		
 		//turn 90 degrees to the left
 		addSequential(new DrivetrainTurnAngleUsingPidController(-90)); 
 
 		// Reverse 24 in.
-		addSequential(new DrivetrainMoveDistance(-24)); 
+		addSequential(new DrivetrainMoveDistance(-24, useMotionMagic)); 
 		
 		// turn left 
 		// TODO
 		
 		//move forward 160 in. 
-		addSequential(new DrivetrainMoveDistance(160));
+		addSequential(new DrivetrainMoveDistance(160, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 145 in. (is that the right distance?)
-		addSequential(new DrivetrainMoveDistance(145));
+		addSequential(new DrivetrainMoveDistance(145, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 76 in.  
-		addSequential(new DrivetrainMoveDistance(76));
+		addSequential(new DrivetrainMoveDistance(76, useMotionMagic));
 
 		// Turn 90 degrees to the right 
 		addSequential(new DrivetrainTurnAngleUsingPidController(90));
 
 		// Move forward 230 in. 
-		addSequential(new DrivetrainMoveDistance(230));
+		addSequential(new DrivetrainMoveDistance(230, useMotionMagic));
 	}
 }
@@ -0,0 +1,60 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.auton;
+
+import edu.wpi.first.wpilibj.command.CommandGroup;
+import frc.robot.commands.*;
+import frc.robot.util.AutonRoute;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Trajectory;
+
+/**
+ * This class drives an auton route without stopping between the moves of each path.
+ * If precomputed trajectories are given they are streamed to the motor controllers, otherwise the paths are followed.
+ */
+public class RouteCommandGroup extends CommandGroup {
+
+	// the trajectories (if not null) need to match the paths of the route, in order
+	public RouteCommandGroup(AutonRoute route, Trajectory[] trajectories) {
+		boolean useTrajectories = trajectories != null && trajectories.length == route.getPathCount();
+
+		if (trajectories != null && !useTrajectories) {
+			Telemetry.log("RouteCommandGroup: trajectories do not match route " + route.getName() + ", following paths instead");
+		}
+
+		int pathIndex = 0;
+
+		for (int i = 0; i < route.size(); i++) {
+			switch (route.getType(i)) {
+				case AutonRoute.SEGMENT_PATH:
+					if (useTrajectories) {
+						addSequential(new DrivetrainFollowTrajectory(trajectories[pathIndex]));
+					} else {
+						addSequential(new DrivetrainFollowPath(route.getPath(i)));
+					}
+					pathIndex++;
+					break;
+
+				case AutonRoute.SEGMENT_TURN:
+					addSequential(new DrivetrainTurnAngleUsingPidController((int) route.getAngle(i)));
+					break;
+
+				case AutonRoute.SEGMENT_HATCH_PANEL_DELIVERY:
+					addSequential(new HatchPanelDeliver());
+					break;
+
+				case AutonRoute.SEGMENT_CARGO_DELIVERY:
+					addSequential(new CargoDeliver());
+					break;
+
+				default:
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+// RobotBuilder Version: 2.0
+//
+// This file was generated by RobotBuilder. It contains sections of
+// code that are automatically generated and assigned by robotbuilder.
+// These sections will be updated in the future when you export to
+// Java from RobotBuilder. Do not put any code or make any change in
+// the blocks indicating autogenerated code or it will be lost on an
+// update. Deleting the comments indicating the section will prevent
+// it from being updated in the future.
+
+
+package frc.robot.commands;
+import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.Robot;
+
+/**
+ * Drives the robot open loop (slow ramps then steps) to measure its feed forward gains.
+ * The gains are saved to the deploy directory and used by velocity control from then on.
+ */
+public class DrivetrainCharacterize extends Command {
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+	public DrivetrainCharacterize() {
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+		requires(Robot.drivetrain);
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+	}
+
+	// Called just before this Command runs the first time
+	@Override
+	protected void initialize() {
+		System.out.println("DrivetrainCharacterize: initialize");
+		Robot.drivetrain.characterize();
+	}
+
+	// Called repeatedly when this Command is scheduled to run
+	@Override
+	protected void execute() {
+		// nothing
+	}
+
+	// Make this return true when this Command no longer needs to run execute()
+	@Override
+	protected boolean isFinished() {
+		return !Robot.drivetrain.tripleCheckCharacterize();
+	}
+
+	// Called once after isFinished returns true
+	@Override
+	protected void end() {
+		System.out.println("DrivetrainCharacterize: end");
+		Robot.drivetrain.stop();
+	}
+
+	// Called when another command which requires one or more of the same
+	// subsystems is scheduled to run
+	@Override
+	protected void interrupted() {
+		System.out.println("DrivetrainCharacterize: interrupted");
+		end();
+	}
+}
@@ -0,0 +1,77 @@
+// RobotBuilder Version: 2.0
+//
+// This file was generated by RobotBuilder. It contains sections of
+// code that are automatically generated and assigned by robotbuilder.
+// These sections will be updated in the future when you export to
+// Java from RobotBuilder. Do not put any code or make any change in
+// the blocks indicating autogenerated code or it will be lost on an
+// update. Deleting the comments indicating the section will prevent
+// it from being updated in the future.
+
+
+package frc.robot.commands;
+import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.Robot;
+import frc.robot.util.Path;
+
+/**
+ *
+ */
+public class DrivetrainFollowPath extends Command {
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
+	private Path m_path;
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+	public DrivetrainFollowPath(Path path) {
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
+		m_path = path;
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+		requires(Robot.drivetrain);
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+	}
+
+	// the waypoints are given as x0, y0, x1, y1, ... (in inches, in the frame of the odometry)
+	public DrivetrainFollowPath(boolean isReversed, double... waypoints) {
+		this(new Path(isReversed, waypoints));
+	}
+
+	// Called just before this Command runs the first time
+	@Override
+	protected void initialize() {
+		System.out.println("DrivetrainFollowPath: initialize");
+		Robot.drivetrain.followPath(m_path);
+	}
+
+	// Called repeatedly when this Command is scheduled to run
+	@Override
+	protected void execute() {
+		// nothing
+	}
+
+	// Make this return true when this Command no longer needs to run execute()
+	@Override
+	protected boolean isFinished() {
+		return !Robot.drivetrain.tripleCheckFollowPath();
+	}
+
+	// Called once after isFinished returns true
+	@Override
+	protected void end() {
+		System.out.println("DrivetrainFollowPath: end");
+		Robot.drivetrain.stop();
+	}
+
+	// Called when another command which requires one or more of the same
+	// subsystems is scheduled to run
+	@Override
+	protected void interrupted() {
+		System.out.println("DrivetrainFollowPath: interrupted");
+		end();
+	}
+}
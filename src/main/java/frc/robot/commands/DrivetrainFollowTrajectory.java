@@ -0,0 +1,72 @@
+// RobotBuilder Version: 2.0
+//
+// This file was generated by RobotBuilder. It contains sections of
+// code that are automatically generated and assigned by robotbuilder.
+// These sections will be updated in the future when you export to
+// Java from RobotBuilder. Do not put any code or make any change in
+// the blocks indicating autogenerated code or it will be lost on an
+// update. Deleting the comments indicating the section will prevent
+// it from being updated in the future.
+
+
+package frc.robot.commands;
+import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.Robot;
+import frc.robot.util.Trajectory;
+
+/**
+ *
+ */
+public class DrivetrainFollowTrajectory extends Command {
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
+	private Trajectory m_trajectory;
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+	public DrivetrainFollowTrajectory(Trajectory trajectory) {
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
+		m_trajectory = trajectory;
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+		requires(Robot.drivetrain);
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+	}
+
+	// Called just before this Command runs the first time
+	@Override
+	protected void initialize() {
+		System.out.println("DrivetrainFollowTrajectory: initialize");
+		Robot.drivetrain.followTrajectory(m_trajectory);
+	}
+
+	// Called repeatedly when this Command is scheduled to run
+	@Override
+	protected void execute() {
+		// nothing
+	}
+
+	// Make this return true when this Command no longer needs to run execute()
+	@Override
+	protected boolean isFinished() {
+		return !Robot.drivetrain.tripleCheckFollowTrajectory();
+	}
+
+	// Called once after isFinished returns true
+	@Override
+	protected void end() {
+		System.out.println("DrivetrainFollowTrajectory: end");
+		Robot.drivetrain.stop();
+	}
+
+	// Called when another command which requires one or more of the same
+	// subsystems is scheduled to run
+	@Override
+	protected void interrupted() {
+		System.out.println("DrivetrainFollowTrajectory: interrupted");
+		end();
+	}
+}
@@ -0,0 +1,84 @@
+// RobotBuilder Version: 2.0
+//
+// This file was generated by RobotBuilder. It contains sections of
+// code that are automatically generated and assigned by robotbuilder.
+// These sections will be updated in the future when you export to
+// Java from RobotBuilder. Do not put any code or make any change in
+// the blocks indicating autogenerated code or it will be lost on an
+// update. Deleting the comments indicating the section will prevent
+// it from being updated in the future.
+
+
+package frc.robot.commands;
+import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.Robot;
+
+/**
+ *
+ */
+public class DrivetrainMoveAlongArc extends Command {
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
+	private double m_radius;
+	private double m_angle;
+	private boolean m_blendIntoNext;
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
+
+	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+	public DrivetrainMoveAlongArc(double radius, double angle, boolean blendIntoNext) {
+	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
+		m_radius = radius;
+		m_angle = angle;
+		m_blendIntoNext = blendIntoNext;
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
+
+		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+		requires(Robot.drivetrain);
+		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
+	}
+
+	public DrivetrainMoveAlongArc(double radius, double angle) {
+		this(radius, angle, false);
+	}
+
+	// Called just before this Command runs the first time
+	@Override
+	protected void initialize() {
+		System.out.println("DrivetrainMoveAlongArc: initialize");
+		Robot.drivetrain.moveDistanceAlongArc(m_radius, m_angle);
+		if (m_blendIntoNext) { // we will not come to rest, the next move takes over
+			Robot.drivetrain.blendIntoNextMove();
+		}
+	}
+
+	// Called repeatedly when this Command is scheduled to run
+	@Override
+	protected void execute() {
+		// nothing
+	}
+
+	// Make this return true when this Command no longer needs to run execute()
+	@Override
+	protected boolean isFinished() {
+		return !Robot.drivetrain.tripleCheckMoveDistance();
+	}
+
+	// Called once after isFinished returns true
+	@Override
+	protected void end() {
+		System.out.println("DrivetrainMoveAlongArc: end");
+		if (!Robot.drivetrain.isBlending()) { // if we handed off to the next move we keep going
+			Robot.drivetrain.stop();
+		}
+	}
+
+	// Called when another command which requires one or more of the same
+	// subsystems is scheduled to run
+	@Override
+	protected void interrupted() {
+		System.out.println("DrivetrainMoveAlongArc: interrupted");
+		end();
+	}
+}
@@ -20,14 +20,18 @@ public class DrivetrainMoveDistance extends Command {
 
 	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
 	private double m_distance;
+	private boolean m_useMotionMagic;
+	private boolean m_blendIntoNext;
 	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_DECLARATIONS
 
 	// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
-	public DrivetrainMoveDistance(double distance) {
+	public DrivetrainMoveDistance(double distance, boolean useMotionMagic, boolean blendIntoNext) {
 	// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=CONSTRUCTOR
 
 		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
 		m_distance = distance;
+		m_useMotionMagic = useMotionMagic;
+		m_blendIntoNext = blendIntoNext;
 		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=VARIABLE_SETTING
 
 		// BEGIN AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
@@ -35,11 +39,26 @@ public class DrivetrainMoveDistance extends Command {
 		// END AUTOGENERATED CODE, SOURCE=ROBOTBUILDER ID=REQUIRES
 	}
 
+	public DrivetrainMoveDistance(double distance, boolean useMotionMagic) {
+		this(distance, useMotionMagic, false);
+	}
+
+	public DrivetrainMoveDistance(double distance) {
+		this(distance, false);
+	}
+
 	// Called just before this Command runs the first time
 	@Override
 	protected void initialize() {
 		System.out.println("DrivetrainMoveDistance: initialize");
-		Robot.drivetrain.moveDistance(m_distance);
+		if (m_useMotionMagic) {
+			Robot.drivetrain.moveDistanceUsingMotionMagic(m_distance);
+		} else {
+			Robot.drivetrain.moveDistance(m_distance);
+		}
+		if (m_blendIntoNext) { // we will not come to rest, the next move takes over
+			Robot.drivetrain.blendIntoNextMove();
+		}
 	}
 
 	// Called repeatedly when this Command is scheduled to run
@@ -58,7 +77,9 @@ public class DrivetrainMoveDistance extends Command {
 	@Override
 	protected void end() {
 		System.out.println("DrivetrainMoveDistance: end");
-		Robot.drivetrain.stop();
+		if (!Robot.drivetrain.isBlending()) { // if we handed off to the next move we keep going
+			Robot.drivetrain.stop();
+		}
 	}
 
 	// Called when another command which requires one or more of the same
@@ -0,0 +1,32 @@
+// RobotBuilder Version: 2.0
+//
+// This file was generated by RobotBuilder. It contains sections of
+// code that are automatically generated and assigned by robotbuilder.
+// These sections will be updated in the future when you export to
+// Java from RobotBuilder. Do not put any code or make any change in
+// the blocks indicating autogenerated code or it will be lost on an
+// update. Deleting the comments indicating the section will prevent
+// it from being updated in the future.
+
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.command.InstantCommand;
+import frc.robot.Robot;
+
+/**
+ * Switches the joystick control of the drivetrain between percent output and velocity control.
+ */
+public class DrivetrainToggleVelocityDrive extends InstantCommand {
+
+	public DrivetrainToggleVelocityDrive() {
+		// no need to reserve the drivetrain, this only changes how the next joystick controls are done
+	}
+
+	// Called once when this command runs
+	@Override
+	protected void initialize() {
+		Robot.drivetrain.setVelocityDriveEnabled(!Robot.drivetrain.isVelocityDriveEnabled());
+	}
+
+}
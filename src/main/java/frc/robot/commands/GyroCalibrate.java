@@ -27,7 +27,7 @@ public class GyroCalibrate extends InstantCommand {
 	// Called once when this command runs
 	@Override
 	protected void initialize() {
-		Robot.gyro.calibrate();
+		Robot.drivetrain.getOdometry().calibrateGyro(); // the pose is not affected
 		Robot.setGyroHasBeenManuallyCalibratedAtLeastOnce(true);
 	}
 
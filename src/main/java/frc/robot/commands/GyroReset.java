@@ -27,7 +27,7 @@ public class GyroReset extends InstantCommand {
 	// Called once when this command runs
 	@Override
 	protected void initialize() {
-		Robot.gyro.reset();
+		Robot.drivetrain.resetGyro(); // the pose is not affected
 	}
 
 }
@@ -12,8 +12,23 @@ public interface ICamera extends PIDSource, PIDSource2 {
 
 	public boolean acquireTargets(boolean waitForNewInfo);
 	
+	// returns how old the targets were (in seconds) when they were acquired
+	public double getLatency();
+
+	// returns when the frame the targets come from was captured (FPGA time in microseconds)
+	public long getCaptureTimestamp();
+
+	// returns the number of the frame the targets come from (it goes up by one with each new frame)
+	public long getFrameNumber();
+
+	// waits until we get a frame more recent than the given one, returns false if none came before the timeout (in seconds)
+	public boolean waitForFrameAfter(long frameNumber, double timeout);
+	
 	public boolean checkForOpening();
 
+	// returns true while we know where the target is (cameras that do not track only know it when they see it)
+	public boolean isTracking();
+
 	public double getDistanceToCompositeTargetUsingVerticalFov();
 	
 	public double getDistanceToCompositeTargetUsingHorizontalFov();
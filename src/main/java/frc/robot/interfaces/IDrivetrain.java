@@ -2,6 +2,10 @@ package frc.robot.interfaces;
 
 import edu.wpi.first.wpilibj.Joystick;
 
+import frc.robot.util.Path;
+import frc.robot.util.Pose;
+import frc.robot.util.Trajectory;
+
 public interface IDrivetrain {
 	
 	// this method needs to be paired with checkTurnAngleUsingPidController()
@@ -14,11 +18,46 @@ public interface IDrivetrain {
 	
 	public void moveDistanceHighSpeed(double dist);
 	
+	// this method needs to be paired with checkMoveDistance()
+	public void moveDistanceUsingMotionMagic(double dist);
+	
+	public void moveDistanceUsingMotionMagic(double dist, int cruiseVelocity, int acceleration);
+	
 	public boolean tripleCheckMoveDistance();
+	
+	// the current move will hand off to the next one without stopping
+	public void blendIntoNextMove();
+	
+	public boolean isBlending();
 
 	// this method needs to be paired with checkMoveDistance()
 	public void moveDistanceAlongArc(int angle);
 	
+	// this method needs to be paired with checkMoveDistance()
+	public void moveDistanceAlongArc(double radius, double angle);
+	
+	public void moveDistanceAlongArc(double radius, double angle, int cruiseVelocity, int acceleration);
+	
+	// this method needs to be paired with tripleCheckFollowTrajectory()
+	public void followTrajectory(Trajectory trajectory);
+	
+	public boolean tripleCheckFollowTrajectory();
+	
+	// this method needs to be paired with tripleCheckFollowPath()
+	public void followPath(Path path);
+	
+	public boolean tripleCheckFollowPath();
+	
+	// this method needs to be paired with tripleCheckCharacterize()
+	public void characterize();
+	
+	public boolean tripleCheckCharacterize();
+	
+	// toggles between velocity and percent output control of the joysticks
+	public void setVelocityDriveEnabled(boolean isVelocityDriveEnabled);
+	
+	public boolean isVelocityDriveEnabled();
+	
 	// checks if drivetrain might be stalled
 	public boolean tripleCheckIfStalled();
 	
@@ -45,6 +84,9 @@ public interface IDrivetrain {
 	
 	public boolean isMoving();
 	
+	// returns where we are on the field (this never blocks)
+	public Pose getPose();
+	
 	public boolean isTurning();
 	
 	// return if stalled
@@ -19,6 +19,10 @@ public interface IElevator {
 	
 	// This method should be called to assess the progress of a move
 	public boolean tripleCheckMove();
+
+	public boolean tripleCheckIfStalled();
+
+	public boolean isStalled();
 	
 	public void moveUp();
 	
@@ -7,6 +7,10 @@ public interface IHabElevator {
 
 	// This method should be called to assess the progress of a move
 	public boolean tripleCheckMove();
+
+	public boolean tripleCheckIfStalled();
+
+	public boolean isStalled();
 	
 	public void moveUp();
 	
@@ -26,6 +26,10 @@ public interface IHinge {
 	
 	// This method should be called to assess the progress of a move
 	public boolean tripleCheckMove();
+
+	public boolean tripleCheckIfStalled();
+
+	public boolean isStalled();
 	
 	public void moveUp();
 	
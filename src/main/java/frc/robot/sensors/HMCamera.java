@@ -2,9 +2,11 @@ package frc.robot.sensors;
 
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.PIDSourceType;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
 //import edu.wpi.first.wpilibj.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
 import frc.robot.interfaces.*;
@@ -12,10 +14,15 @@ import frc.robot.interfaces.*;
 
 public class HMCamera implements PIDSource, ICamera {
 	private static final int BAD_INDEX = -1;
+	private static final double[] NONE = {}; // empty array returned by default (shared so we never allocate it)
 	
 	NetworkTable nt;
-	double[] area, width, height, centerX, centerY;
-	int largeAIndex, largeBIndex = BAD_INDEX;
+	NetworkTableEntry areaEntry, widthEntry, heightEntry, centerXEntry, centerYEntry; // looked up once
+	double[] area = NONE, width = NONE, height = NONE, centerX = NONE, centerY = NONE;
+	int largeAIndex = BAD_INDEX, largeBIndex = BAD_INDEX;
+	long frameNumber; // goes up each time GRIP publishes new values
+	long captureTimestamp; // when we noticed the new values (in microseconds, FPGA time)
+	long lastChange = Long.MIN_VALUE; // when the values we have last changed (in network tables time)
 
 	public static final int HORIZONTAL_CAMERA_RES_PIXELS = 320;
 	public static final int VERTICAL_CAMERA_RES_PIXELS = 240;
@@ -27,11 +34,18 @@ public class HMCamera implements PIDSource, ICamera {
 	public static final double SAFE_DISTANCE_INCHES = 120;	
 
 	private static final int MAX_NT_RETRY = 5;
-	private static final double CAMERA_CATCHUP_DELAY_SECS = 0.250;
+	private static final double CAMERA_CATCHUP_DELAY_SECS = 0.250; // how long we wait for a new frame at most
+	private static final double FRAME_POLL_PERIOD_SECS = 0.01;
 
 	public HMCamera(String networktable) {
 		// nt = NetworkTable.getTable(networktable);
 		nt = NetworkTableInstance.getDefault().getTable(networktable);
+
+		areaEntry = nt.getEntry("area");
+		widthEntry = nt.getEntry("width");
+		heightEntry = nt.getEntry("height");
+		centerXEntry = nt.getEntry("centerX");
+		centerYEntry = nt.getEntry("centerY");
 	}
 
 	private void setLocalTables(double[] area, double[] width, double[] height, double[] centerX, double[] centerY) {
@@ -42,30 +56,62 @@ public class HMCamera implements PIDSource, ICamera {
 		this.centerY = centerY;
 	}
 
+	// Private. Returns when any of the values GRIP publishes last changed (this acts as a frame counter)
+	private long getLastChange() {
+		return Math.max(Math.max(areaEntry.getLastChange(), widthEntry.getLastChange()),
+			Math.max(heightEntry.getLastChange(), Math.max(centerXEntry.getLastChange(), centerYEntry.getLastChange())));
+	}
+
+	// Private. Reads the values GRIP published if they changed since we last read them.
+	// Between frames nothing is read (so nothing is allocated), only the network tables copies the arrays when we read them.
 	private void updateFromNT() {
-		double[] def = {}; // Return an empty array by default.
+		long change = getLastChange();
+		
+		if (change == lastChange) {
+			return; // we already have the latest frame
+		}
+		
 		int retry_count = 0;
-		setLocalTables(null, null, null, null, null);
-		largeAIndex = BAD_INDEX;
-		largeBIndex = BAD_INDEX;
 
-		// We cannot get arrays atomically but at least we can make sure they
-		// have the same size
+		// We cannot get arrays atomically, so we make sure that nothing changed while we were reading them
+		// (otherwise we might mix two frames) and that they have the same size
 		do {
 			// Get data from NetworkTable
 			//setLocalTables(nt.getNumberArray("area", def), nt.getNumberArray("width", def),
 			//		nt.getNumberArray("height", def), nt.getNumberArray("centerX", def),
 			//		nt.getNumberArray("centerY", def));			
-			setLocalTables(nt.getEntry("area").getDoubleArray(def), nt.getEntry("width").getDoubleArray(def),
-					nt.getEntry("height").getDoubleArray(def), nt.getEntry("centerX").getDoubleArray(def),
-					nt.getEntry("centerY").getDoubleArray(def));
+			double[] areaRead = areaEntry.getDoubleArray(NONE);
+			double[] widthRead = widthEntry.getDoubleArray(NONE);
+			double[] heightRead = heightEntry.getDoubleArray(NONE);
+			double[] centerXRead = centerXEntry.getDoubleArray(NONE);
+			double[] centerYRead = centerYEntry.getDoubleArray(NONE);
+
+			long changeAfter = getLastChange();
+
+			if (changeAfter == change && areaRead.length == widthRead.length && areaRead.length == heightRead.length
+					&& areaRead.length == centerXRead.length && areaRead.length == centerYRead.length) {
+				setLocalTables(areaRead, widthRead, heightRead, centerXRead, centerYRead);
+				processInformation(); // once per frame
+				
+				lastChange = change;
+				captureTimestamp = RobotController.getFPGATime(); // GRIP does not tell us when the frame was captured so we use when we noticed it
+				frameNumber++;
+				return;
+			}
 
+			change = changeAfter; // torn read, let's try again
 			retry_count++;
-		} while (!isCoherent() && retry_count < MAX_NT_RETRY);
+		} while (retry_count < MAX_NT_RETRY);
+
+		// we keep the previous frame and will try again next time
 	}
 
+	// Private. Finds the two largest targets (by area) without allocating anything
 	private void processInformation() {
 		double[] areaSave = area;
+		largeAIndex = BAD_INDEX;
+		largeBIndex = BAD_INDEX;
+
 		if (areaSave.length >= 2) {
 			largeAIndex = 0;
 			largeBIndex = 0;
@@ -122,19 +168,50 @@ public class HMCamera implements PIDSource, ICamera {
 
 	public synchronized boolean acquireTargets(boolean waitForNewInfo) {
 		if (waitForNewInfo) {
-			Timer.delay(CAMERA_CATCHUP_DELAY_SECS);
+			updateFromNT();
+			waitForFrameAfter(frameNumber, CAMERA_CATCHUP_DELAY_SECS);
 		}
 		
-		updateFromNT(); // gets the latest info
+		updateFromNT(); // gets the latest info (if there is any)
 
 		if (isCoherent() && getNumberOfTargets() > 0) { // if we have targets
-			processInformation();
 			return true;
 		} else {
 			return false;
 		}
 	}
 
+	public synchronized double getLatency() {
+		return 0; // unknown (GRIP does not report it)
+	}
+
+	public synchronized long getCaptureTimestamp() {
+		return captureTimestamp;
+	}
+
+	public synchronized long getFrameNumber() {
+		return frameNumber;
+	}
+
+	public synchronized boolean waitForFrameAfter(long frameNumber_in, double timeout) {
+		double deadline = Timer.getFPGATimestamp() + timeout;
+
+		updateFromNT();
+		while (frameNumber <= frameNumber_in) {
+			if (Timer.getFPGATimestamp() >= deadline) {
+				return false; // no new frame in time
+			}
+
+			Timer.delay(FRAME_POLL_PERIOD_SECS); // GRIP values are polled
+			updateFromNT();
+		}
+		return true;
+	}
+
+	public synchronized boolean isTracking() {
+		return getNumberOfTargets() > 0; // we do not track (see TrackingCamera)
+	}
+
 	public synchronized boolean checkForOpening() {
 		return getNumberOfTargets() > 1; // opening is at least two targets
 	}
@@ -263,7 +340,7 @@ public class HMCamera implements PIDSource, ICamera {
 		return PIDSourceType.kDisplacement;
 	}
 	
-	// The PIDController that will call this method runs in a different thread than the scheduler thread,
+	// The drivetrain control loop that will call this method runs in a different thread than the scheduler thread,
 	// so it is important that this class be made thread-safe. This is why all the public methods are synchronized.
 	public synchronized double pidGet()
 	{
@@ -282,7 +359,7 @@ public class HMCamera implements PIDSource, ICamera {
 		return PIDSourceType.kDisplacement;
 	}
 	
-	// The PIDController that will call this method runs in a different thread than the scheduler thread,
+	// The drivetrain control loop that will call this method runs in a different thread than the scheduler thread,
 	// so it is important that this class be made thread-safe. This is why all the public methods are synchronized.
 	public synchronized double pidGet2()
 	{
@@ -1,21 +1,42 @@
 package frc.robot.sensors;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.PIDSourceType;
-import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.RobotController;
 //import edu.wpi.first.wpilibj.networktables.NetworkTable;
+import edu.wpi.first.networktables.EntryListenerFlags;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
 import frc.robot.interfaces.*;
 
 
+/**
+ * This class gives access to the targets seen by the Limelight.
+ *
+ * <p>Instead of polling the network table each time it is asked, it listens to it and builds one immutable
+ * snapshot of the targets (a frame) each time the Limelight publishes a new image. We listen to all the values we
+ * use, as any of them (even the latency) may be the only one to change, but the values published together share
+ * their change time so we only build one frame per change time. The latest frame is published through an atomic
+ * reference, so readers in any thread (e.g. the drivetrain control loop) always get all their values from the same
+ * frame without locking, polling or allocating.
+ */
 public class LimelightCamera implements PIDSource, ICamera {
 	private static final int BAD_INDEX = -1;
 	
 	NetworkTable nt;
-	double[] area, width, height, centerX, centerY;
-	int largeIndex = BAD_INDEX;
+	NetworkTableEntry taEntry, thorEntry, tvertEntry, txEntry, tyEntry, tvEntry, tlEntry; // looked up once
+
+	// the latest frame (replaced as a whole each time the Limelight publishes new values)
+	private final AtomicReference<Frame> latestFrame = new AtomicReference<>(Frame.EMPTY);
+
+	private long frameCount; // number of frames built so far (only used by the listener thread)
+	private long lastChange = Long.MIN_VALUE; // when the values of the latest frame last changed (in network tables time, only used by the listener thread)
+
+	private final Object frameLock = new Object(); // only used to wake up those waiting for the next frame
 
 	public static final int HORIZONTAL_CAMERA_RES_PIXELS = 320;
 	private static final int VERTICAL_CAMERA_RES_PIXELS = 240;
@@ -26,131 +47,218 @@ public class LimelightCamera implements PIDSource, ICamera {
 
 	public static final double SAFE_DISTANCE_INCHES = 120;
 
-	private static final int MAX_NT_RETRY = 5;
-	private static final double CAMERA_CATCHUP_DELAY_SECS = 0.50;
+	private static final double CAMERA_CATCHUP_DELAY_SECS = 0.50; // how long we wait for a new frame at most
+	private static final double IMAGE_CAPTURE_LATENCY_MS = 11; // not included in the pipeline latency (see the Limelight docs)
+
+	/**
+	 * This class is an immutable snapshot of what the Limelight saw in one frame.
+	 * The arrays must not be modified (they are shared with whoever reads the frame).
+	 */
+	private static final class Frame {
+		static final double[] NONE = {}; // empty array shared by all the frames without targets
+		static final Frame EMPTY = new Frame(NONE, NONE, NONE, NONE, NONE, 0, 0, 0);
+
+		final double[] area, width, height, centerX, centerY;
+		final int largeIndex;
+		final double latency; // in seconds
+		final long captureTimestamp; // in microseconds (FPGA time)
+		final long number; // 0 until we get the first frame
+
+		Frame(double[] area, double[] width, double[] height, double[] centerX, double[] centerY, double latency,
+				long captureTimestamp, long number) {
+			this.area = area;
+			this.width = width;
+			this.height = height;
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.latency = latency;
+			this.captureTimestamp = captureTimestamp;
+			this.number = number;
+
+			// finds the largest target
+			int index = BAD_INDEX;
+			if (area.length >= 1) {
+				index = 0;
+		 
+				//Checking remaining elements of input array
+				for (int i = 1; i < area.length; i++)
+				{
+					if(area[i] > area[index])
+					{
+						index = i;
+					}
+				}
+			}
+			largeIndex = index;
+		}
+
+		boolean hasTargets() {
+			return largeIndex != BAD_INDEX;
+		}
+	}
 
 	public LimelightCamera() {
 		nt = NetworkTableInstance.getDefault().getTable("limelight");
+
+		taEntry = nt.getEntry("ta");
+		thorEntry = nt.getEntry("thor");
+		tvertEntry = nt.getEntry("tvert");
+		txEntry = nt.getEntry("tx");
+		tyEntry = nt.getEntry("ty");
+		tvEntry = nt.getEntry("tv");
+		tlEntry = nt.getEntry("tl");
+
+		// called in the network tables listener thread each time one of the values changes (and once right away)
+		for (String name : new String[] {"ta", "thor", "tvert", "tx", "ty", "tv", "tl"}) {
+			nt.addEntryListener(name, (table, key, entry, value, flags) -> updateFromNT(),
+				EntryListenerFlags.kImmediate | EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+		}
 	}
 
-	private void setLocalTables(double[] area, double[] width, double[] height, double[] centerX, double[] centerY) {
-		this.area = area;
-		this.width = width;
-		this.height = height;
-		this.centerX = centerX;
-		this.centerY = centerY;
+	// Private. Returns when the values we use last changed (in network tables time)
+	private long getLastChange() {
+		return Math.max(Math.max(Math.max(taEntry.getLastChange(), thorEntry.getLastChange()),
+			Math.max(tvertEntry.getLastChange(), txEntry.getLastChange())),
+			Math.max(Math.max(tyEntry.getLastChange(), tvEntry.getLastChange()), tlEntry.getLastChange()));
 	}
-	
+
+	// Private. Builds a new frame from the values published by the Limelight for its latest image.
+	// (the values of an image arrive together, so the listeners called for the other values find nothing new)
 	private void updateFromNT() {
+		long receivedTimestamp = RobotController.getFPGATime(); // the network delay is small compared to the latency
+		long change = getLastChange();
+
+		if (change == lastChange) {
+			return; // we already built the frame for these values
+		}
+
 		double def = 0.0; // 0.0 by default
-		int retry_count = 0;
-		setLocalTables(null, null, null, null, null);
-		largeIndex = BAD_INDEX;
-
-		// We cannot get arrays atomically but at least we can make sure they
-		// have the same size
-		do {
-			// Get data from NetworkTable
-			double ta = nt.getEntry("ta").getDouble(def);
-			double thor = nt.getEntry("thor").getDouble(def);
-			double tvert = nt.getEntry("tvert").getDouble(def);
-			double tx = nt.getEntry("tx").getDouble(def);
-			double ty = nt.getEntry("ty").getDouble(def);
-			double tv = nt.getEntry("tv").getDouble(def);
-
-			if (tv != 0.0) {
-				double[] area = {ta};
-				double[] width = {thor};
-				double[] height = {tvert};
-				double[] centerX = {tx * HORIZONTAL_CAMERA_RES_PIXELS / HORIZONTAL_FOV_DEGREES + (HORIZONTAL_CAMERA_RES_PIXELS / 2)}; // to use same units as HMCamera
-				double[] centerY = {ty * VERTICAL_CAMERA_RES_PIXELS / VERTICAL_FOV_DEGREES + (VERTICAL_CAMERA_RES_PIXELS / 2)}; // to use same units as HMCamera
-				
-				setLocalTables(area,width,height,centerX,centerY);
-			} else {
-				double[] empty = {}; // empty array
 
-				setLocalTables(empty,empty,empty,empty,empty);
-			}		
+		// Get data from NetworkTable
+		double ta = taEntry.getDouble(def);
+		double thor = thorEntry.getDouble(def);
+		double tvert = tvertEntry.getDouble(def);
+		double tx = txEntry.getDouble(def);
+		double ty = tyEntry.getDouble(def);
+		double tv = tvEntry.getDouble(def);
+		double tl = tlEntry.getDouble(def); // pipeline latency in ms
 
-			retry_count++;
-		} while (!isCoherent() && retry_count < MAX_NT_RETRY);
-	}
+		if (getLastChange() != change) {
+			return; // some values changed while we were reading them (the listener of the changed value will try again)
+		}
 
-	private void processInformation() {
-		double[] areaSave = area;
-		if (areaSave.length >= 1) {
-			largeIndex = 0;
-	 
-			//Checking remaining elements of input array
-			for (int i = 1; i < areaSave.length; i++)
-			{
-				if(areaSave[i] > areaSave[largeIndex])
-				{
-					largeIndex = i;
-				}
-			}
+		lastChange = change;
+
+		double latency = (tl + IMAGE_CAPTURE_LATENCY_MS) / 1000;
+		long captureTimestamp = receivedTimestamp - (long) (latency * 1e6);
+		frameCount++;
+
+		if (tv != 0.0) {
+			double[] area = {ta};
+			double[] width = {thor};
+			double[] height = {tvert};
+			double[] centerX = {tx * HORIZONTAL_CAMERA_RES_PIXELS / HORIZONTAL_FOV_DEGREES + (HORIZONTAL_CAMERA_RES_PIXELS / 2)}; // to use same units as HMCamera
+			double[] centerY = {ty * VERTICAL_CAMERA_RES_PIXELS / VERTICAL_FOV_DEGREES + (VERTICAL_CAMERA_RES_PIXELS / 2)}; // to use same units as HMCamera
+			
+			latestFrame.set(new Frame(area, width, height, centerX, centerY, latency, captureTimestamp, frameCount));
+		} else {
+			latestFrame.set(new Frame(Frame.NONE, Frame.NONE, Frame.NONE, Frame.NONE, Frame.NONE, latency,
+				captureTimestamp, frameCount));
+		}
+
+		synchronized (frameLock) {
+			frameLock.notifyAll(); // wakes up those waiting for this frame
 		}
 	}
 
-	public synchronized boolean isCoherent() {
-		boolean result = (area != null && width != null && height != null && centerX != null && centerY != null
-				&& area.length == width.length && area.length == height.length && area.length == centerX.length
-				&& area.length == centerY.length);
-		return result;
+	public boolean isCoherent() {
+		return true; // a frame is always coherent as it is built all at once
 	}
 
-	public synchronized int getNumberOfTargets() {
-		if (isCoherent()) {
-			int number = area.length;
-			return number; // all tables have the same size so any length
-								// can be used (might be zero)
-		} else {
-			//System.out.println("cannot get number of targets");
-			return 0; // best answer in that case
-		}
+	public int getNumberOfTargets() {
+		return latestFrame.get().area.length; // might be zero
 	}
 
-	public synchronized boolean acquireTargets(boolean waitForNewInfo) {
+	// the targets are acquired as soon as they are published, so this only tells if we have targets
+	// (after waiting for the next frame if asked to)
+	public boolean acquireTargets(boolean waitForNewInfo) {
 		if (waitForNewInfo) {
-			Timer.delay(CAMERA_CATCHUP_DELAY_SECS);
+			waitForFrameAfter(getFrameNumber(), CAMERA_CATCHUP_DELAY_SECS);
 		}
 		
-		updateFromNT(); // gets the latest info
+		return latestFrame.get().hasTargets();
+	}
 
-		if (isCoherent() && getNumberOfTargets() > 0) { // if we have targets
-			processInformation();
-			return true;
-		} else {
-			return false;
+	public double getLatency() {
+		return latestFrame.get().latency;
+	}
+
+	public long getCaptureTimestamp() {
+		return latestFrame.get().captureTimestamp;
+	}
+
+	public long getFrameNumber() {
+		return latestFrame.get().number;
+	}
+
+	public boolean waitForFrameAfter(long frameNumber, double timeout) {
+		long deadline = RobotController.getFPGATime() + (long) (timeout * 1e6);
+
+		synchronized (frameLock) {
+			while (latestFrame.get().number <= frameNumber) {
+				long remaining = deadline - RobotController.getFPGATime();
+
+				if (remaining <= 0) {
+					return false; // no new frame in time
+				}
+
+				try {
+					frameLock.wait(Math.max(remaining / 1000, 1));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
 		}
+		return true;
+	}
+
+	public boolean isTracking() {
+		return latestFrame.get().hasTargets(); // we do not track (see TrackingCamera)
 	}
 
-	public synchronized boolean checkForOpening() {
+	public boolean checkForOpening() {
 		return getNumberOfTargets() > 0; // opening is at least one combined target
 	}
 
-	public synchronized double getDistanceToCompositeTargetUsingVerticalFov() {
-		if (isCoherent() && largeIndex != BAD_INDEX) {
-			double diagTargetDistance = TARGET_HEIGHT_INCHES * (VERTICAL_CAMERA_RES_PIXELS / height[largeIndex]) / 2.0
+	public double getDistanceToCompositeTargetUsingVerticalFov() {
+		Frame frame = latestFrame.get();
+
+		if (frame.hasTargets()) {
+			double diagTargetDistance = TARGET_HEIGHT_INCHES * (VERTICAL_CAMERA_RES_PIXELS / frame.height[frame.largeIndex]) / 2.0
 					/ Math.tan(Math.toRadians(VERTICAL_FOV_DEGREES / 2));
 			return diagTargetDistance;
 		} else
 			return Double.POSITIVE_INFINITY;
 	}
 	
-	public synchronized double getDistanceToCompositeTargetUsingHorizontalFov()
+	public double getDistanceToCompositeTargetUsingHorizontalFov()
 	{
-		if (isCoherent() && largeIndex != BAD_INDEX) {
-			double diagTargetDistance = TARGET_WIDTH_INCHES * (HORIZONTAL_CAMERA_RES_PIXELS / width[largeIndex]) / 2.0
+		Frame frame = latestFrame.get();
+
+		if (frame.hasTargets()) {
+			double diagTargetDistance = TARGET_WIDTH_INCHES * (HORIZONTAL_CAMERA_RES_PIXELS / frame.width[frame.largeIndex]) / 2.0
 					/ Math.tan(Math.toRadians(HORIZONTAL_FOV_DEGREES / 2));
 			return diagTargetDistance;
 		} else
 			return Double.POSITIVE_INFINITY;
 	}
 
-	public synchronized double getAngleToTurnToCompositeTarget() {
-		if (isCoherent() && largeIndex != BAD_INDEX) {
-			double diff = (getCenterX()[largeIndex] - (HORIZONTAL_CAMERA_RES_PIXELS / 2))
+	public double getAngleToTurnToCompositeTarget() {
+		Frame frame = latestFrame.get();
+
+		if (frame.hasTargets()) {
+			double diff = (frame.centerX[frame.largeIndex] - (HORIZONTAL_CAMERA_RES_PIXELS / 2))
 					/ HORIZONTAL_CAMERA_RES_PIXELS;
 			double angle = diff * HORIZONTAL_FOV_DEGREES;
 			return angle;
@@ -158,67 +266,66 @@ public class LimelightCamera implements PIDSource, ICamera {
 			return 0;
 	}
 	
-	public synchronized double getPixelDisplacementToCenterToCompositeTarget() {
-		if (isCoherent() && largeIndex != BAD_INDEX) {
-			double diff = (getCenterX()[largeIndex] - (HORIZONTAL_CAMERA_RES_PIXELS / 2));
+	public double getPixelDisplacementToCenterToCompositeTarget() {
+		Frame frame = latestFrame.get();
+
+		if (frame.hasTargets()) {
+			double diff = (frame.centerX[frame.largeIndex] - (HORIZONTAL_CAMERA_RES_PIXELS / 2));
 			return diff;
 		} else
 			return 0;
 	}
 
-	public synchronized double[] getArea() {
-		return area;
+	// the arrays returned must not be modified (they belong to the latest frame)
+	public double[] getArea() {
+		return latestFrame.get().area;
 	}
 
-	public synchronized double[] getWidth() {
-		return width;
+	public double[] getWidth() {
+		return latestFrame.get().width;
 	}
 
-	public synchronized double[] getHeight() {
-		return height;
+	public double[] getHeight() {
+		return latestFrame.get().height;
 	}
 
-	public synchronized double[] getCenterX() {
-		return centerX;
+	public double[] getCenterX() {
+		return latestFrame.get().centerX;
 	}
 
-	public synchronized double[] getCenterY() {
-		return centerY;
+	public double[] getCenterY() {
+		return latestFrame.get().centerY;
 	}
 	
-	public synchronized void setPIDSourceType(PIDSourceType pidSource)
+	public void setPIDSourceType(PIDSourceType pidSource)
 	{
 		// always displacement!
 	}
 
-	public synchronized PIDSourceType getPIDSourceType()
+	public PIDSourceType getPIDSourceType()
 	{
 		return PIDSourceType.kDisplacement;
 	}
 	
-	// The PIDController that will call this method runs in a different thread than the scheduler thread,
-	// so it is important that this class be made thread-safe. This is why all the public methods are synchronized.
-	public synchronized double pidGet()
+	// The drivetrain control loop that will call this method runs in a different thread than the scheduler thread,
+	// but it only reads the latest frame (which never changes once published) so no locking is needed.
+	public double pidGet()
 	{
-		acquireTargets(false); // we don't want to wait but the lag might be problematic
-		
 		return -getPixelDisplacementToCenterToCompositeTarget(); // we are located at the opposite or the displacement we need to shift by
 	}
 
-	public synchronized void setPIDSource2Type(PIDSourceType pidSource)
+	public void setPIDSource2Type(PIDSourceType pidSource)
 	{
 		// always displacement!
 	}
 
-	public synchronized PIDSourceType getPIDSource2Type()
+	public PIDSourceType getPIDSource2Type()
 	{
 		return PIDSourceType.kDisplacement;
 	}
 	
-	public synchronized double pidGet2()
+	public double pidGet2()
 	{
-		acquireTargets(false); // we don't want to wait but the lag might be problematic
-		
 		final double OFFSET_CAMERA_TARGET_INCHES = 10; // we need to leave some space between the camera and the target
 		final double MAX_DISTANCE_TO_TARGET_INCHES = SAFE_DISTANCE_INCHES; // arbitrary very large distance
 		
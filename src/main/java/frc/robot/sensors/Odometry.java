@@ -0,0 +1,260 @@
+package frc.robot.sensors;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+import edu.wpi.first.wpilibj.ADXRS450_Gyro;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+
+import frc.robot.util.Pose;
+import frc.robot.util.SensorHistory;
+
+
+/**
+ * This class estimates the pose of a differential drivetrain on the field.
+ *
+ * <p>A Notifier running at 200 Hz integrates the left and right encoder deltas along the gyro heading
+ * (the motor controllers need to send their positions as often, see Drivetrain).
+ * The pose is never reset when encoders or the gyro are. Whoever resets the encoders tells us beforehand, and we
+ * take a new baseline when we see each side jump to zero (so we never miss what the robot moved in the meantime).
+ * The gyro is reset through us, as its reset takes effect right away and must not fall between a reading and the next.
+ *
+ * <p>The pose is published in a double buffer guarded by a version counter, so readers never block
+ * and never see a pose that is being written. The heading and the distances traveled by each side are also
+ * recorded in a history (one second long) so we can tell where the robot was when e.g. a camera frame was captured.
+ * Like the pose they are not affected by resets.
+ */
+public class Odometry {
+
+	public static final double PERIOD_SECONDS = 0.005; // 200 Hz
+
+	static final double RESET_TOLERANCE_INCHES = 1.0; // how close to zero a reset encoder reads (more than the robot travels in one period)
+
+	static final int PRIMARY_PID_LOOP = 0;
+
+	static final int HISTORY_CAPACITY = 200; // one second
+
+	// channels of the history
+	public static final int HISTORY_HEADING = 0; // in degrees
+	public static final int HISTORY_LEFT_DISTANCE = 1; // in inches (since the robot was turned on)
+	public static final int HISTORY_RIGHT_DISTANCE = 2; // in inches (since the robot was turned on)
+	private static final int HISTORY_CHANNEL_COUNT = 3;
+
+	// layout of each half of the double buffer
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int HEADING = 2;
+	private static final int TIMESTAMP = 3;
+	private static final int NUMBER_OF_FIELDS = 4;
+
+	private final BaseMotorController left, right;
+	private final ADXRS450_Gyro gyro;
+	private final double inchesPerTick; // negative if the sensors count backwards when the robot moves forward
+	private final double resetToleranceTicks;
+
+	private final Notifier notifier;
+
+	// double buffer (the version tells which half was written last)
+	private final AtomicLongArray buffer = new AtomicLongArray(2 * NUMBER_OF_FIELDS);
+	private final AtomicLong version = new AtomicLong();
+
+	// integration state (only used by the notifier)
+	private double x, y, heading;
+	private double leftDistance, rightDistance;
+	private int lastLeftTicks, lastRightTicks;
+	private double gyroOffset; // heading - gyro angle
+	private boolean hasEncoderBaseline, hasGyroBaseline;
+	private boolean isLeftResetPending, isRightResetPending; // we are waiting for the reset to show up in the readings
+
+	private final SensorHistory history = new SensorHistory(HISTORY_CAPACITY, HISTORY_CHANNEL_COUNT);
+	private final double[] historySample = new double[HISTORY_CHANNEL_COUNT]; // reused so we never allocate
+
+	// requests from other threads (the gyro is also read and reset under the lock)
+	private final Object requestLock = new Object();
+	private boolean isEncoderResetRequested;
+	private boolean isGyroReset;
+	private boolean isPoseRequested;
+	private double requestedX, requestedY, requestedHeading;
+
+
+	public Odometry(BaseMotorController left_in, BaseMotorController right_in, ADXRS450_Gyro gyro_in, double inchesPerTick_in) {
+		left = left_in;
+		right = right_in;
+		gyro = gyro_in;
+		inchesPerTick = inchesPerTick_in;
+		resetToleranceTicks = RESET_TOLERANCE_INCHES / Math.abs(inchesPerTick);
+
+		publish(Timer.getFPGATimestamp());
+
+		notifier = new Notifier(this::run);
+		notifier.startPeriodic(PERIOD_SECONDS);
+	}
+
+	// returns the latest pose (this never blocks)
+	public Pose getPose() {
+		while (true) {
+			long currentVersion = version.get();
+			int offset = (int) (currentVersion & 1) * NUMBER_OF_FIELDS;
+
+			double poseX = Double.longBitsToDouble(buffer.get(offset + X));
+			double poseY = Double.longBitsToDouble(buffer.get(offset + Y));
+			double poseHeading = Double.longBitsToDouble(buffer.get(offset + HEADING));
+			double poseTimestamp = Double.longBitsToDouble(buffer.get(offset + TIMESTAMP));
+
+			if (version.get() == currentVersion) { // the writer did not start reusing this half while we were reading
+				return new Pose(poseX, poseY, poseHeading, poseTimestamp);
+			}
+		}
+	}
+
+	// returns the history of the heading and distances (it can be read from any thread)
+	public SensorHistory getHistory() {
+		return history;
+	}
+
+	// sets the current pose (e.g. the starting position at the beginning of auton)
+	public void setPose(double x_in, double y_in, double heading_in) {
+		synchronized (requestLock) {
+			requestedX = x_in;
+			requestedY = y_in;
+			requestedHeading = heading_in;
+			isPoseRequested = true;
+		}
+	}
+
+	// this method needs to be called right before the encoders are reset (i.e. before the reset is sent)
+	public void onEncodersReset() {
+		synchronized (requestLock) {
+			isEncoderResetRequested = true;
+		}
+	}
+
+	// resets the gyro to zero (the pose is not affected)
+	public void resetGyro() {
+		synchronized (requestLock) {
+			gyro.reset();
+			isGyroReset = true;
+		}
+	}
+
+	// calibrates the gyro (the pose is not affected, but it is not updated until this returns)
+	public void calibrateGyro() {
+		synchronized (requestLock) {
+			gyro.calibrate();
+			isGyroReset = true;
+		}
+	}
+
+	private void run() {
+		long nowMicros = RobotController.getFPGATime();
+		double now = nowMicros / 1e6;
+
+		double angle;
+
+		synchronized (requestLock) {
+			if (isPoseRequested) {
+				x = requestedX;
+				y = requestedY;
+				heading = requestedHeading;
+				hasGyroBaseline = false; // so the gyro offset matches the new heading
+				isPoseRequested = false;
+			}
+
+			if (isGyroReset) {
+				hasGyroBaseline = false;
+				isGyroReset = false;
+			}
+
+			if (isEncoderResetRequested) {
+				isLeftResetPending = true;
+				isRightResetPending = true;
+				isEncoderResetRequested = false;
+			}
+
+			angle = gyro.getAngle(); // the gyro cannot be reset after we read it but before we know
+		}
+
+		int leftTicks = left.getSelectedSensorPosition(PRIMARY_PID_LOOP);
+		int rightTicks = right.getSelectedSensorPosition(PRIMARY_PID_LOOP);
+
+		double newHeading = heading;
+
+		if (!hasGyroBaseline) {
+			gyroOffset = heading - angle;
+			hasGyroBaseline = true;
+		} else {
+			newHeading = angle + gyroOffset;
+		}
+
+		if (!hasEncoderBaseline) {
+			lastLeftTicks = leftTicks;
+			lastRightTicks = rightTicks;
+			hasEncoderBaseline = true;
+			isLeftResetPending = false;
+			isRightResetPending = false;
+		} else {
+			if (isLeftResetPending) {
+				if (hasJumpedToZero(leftTicks, lastLeftTicks)) {
+					lastLeftTicks = 0; // what we moved since the reset still counts
+					isLeftResetPending = false;
+				} else if (Math.abs(lastLeftTicks) <= resetToleranceTicks) {
+					isLeftResetPending = false; // too close to zero to tell (we lose less than the tolerance)
+				}
+			}
+
+			if (isRightResetPending) {
+				if (hasJumpedToZero(rightTicks, lastRightTicks)) {
+					lastRightTicks = 0;
+					isRightResetPending = false;
+				} else if (Math.abs(lastRightTicks) <= resetToleranceTicks) {
+					isRightResetPending = false;
+				}
+			}
+
+			double leftDelta = (leftTicks - lastLeftTicks) * inchesPerTick;
+			double rightDelta = (rightTicks - lastRightTicks) * inchesPerTick;
+			double distance = (leftDelta + rightDelta) / 2;
+			double midHeading = Math.toRadians((heading + newHeading) / 2); // the heading halfway through the step
+
+			x += distance * Math.cos(midHeading);
+			y += distance * Math.sin(midHeading);
+
+			leftDistance += leftDelta;
+			rightDistance += rightDelta;
+
+			lastLeftTicks = leftTicks;
+			lastRightTicks = rightTicks;
+		}
+
+		heading = newHeading;
+
+		publish(now);
+
+		historySample[HISTORY_HEADING] = heading;
+		historySample[HISTORY_LEFT_DISTANCE] = leftDistance;
+		historySample[HISTORY_RIGHT_DISTANCE] = rightDistance;
+		history.add(nowMicros, historySample);
+	}
+
+	// Private. Returns true if the encoder reads zero after reading far from it (the robot cannot move that fast)
+	private boolean hasJumpedToZero(int ticks, int lastTicks) {
+		return Math.abs(ticks) <= resetToleranceTicks && Math.abs(ticks - lastTicks) > resetToleranceTicks;
+	}
+
+	// writes into the half readers are not using, then switches
+	private void publish(double timestamp) {
+		long nextVersion = version.get() + 1;
+		int offset = (int) (nextVersion & 1) * NUMBER_OF_FIELDS;
+
+		buffer.set(offset + X, Double.doubleToRawLongBits(x));
+		buffer.set(offset + Y, Double.doubleToRawLongBits(y));
+		buffer.set(offset + HEADING, Double.doubleToRawLongBits(heading));
+		buffer.set(offset + TIMESTAMP, Double.doubleToRawLongBits(timestamp));
+
+		version.set(nextVersion);
+	}
+}
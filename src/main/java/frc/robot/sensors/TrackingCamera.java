@@ -0,0 +1,250 @@
+package frc.robot.sensors;
+
+import edu.wpi.first.wpilibj.PIDSource;
+import edu.wpi.first.wpilibj.PIDSourceType;
+import edu.wpi.first.wpilibj.RobotController;
+
+import frc.robot.interfaces.*;
+import frc.robot.util.AlphaBetaFilter;
+import frc.robot.util.Telemetry;
+
+
+/**
+ * This class tracks the target seen by a camera across frames.
+ *
+ * <p>The distances, bearing and pixel displacement reported by the camera for each frame are filtered (along with
+ * their rates) using alpha-beta filters. The values given are the filtered values at the time the last frame with
+ * the target was captured, and so is the capture timestamp, so users can still make up for the camera latency
+ * with what the robot measured since (e.g. the drivetrain uses the odometry history). If the target is not seen
+ * for a while we keep the last values, until we give up and report that we lost track of the target.
+ * The turn using the camera cannot make up for the latency, so pidGet() only uses fresh frames.
+ */
+public class TrackingCamera implements PIDSource, ICamera {
+
+	static final double ALPHA = 0.5; // how much of the surprise in each frame corrects the values
+	static final double BETA = 0.1; // how much of the surprise in each frame corrects the rates
+
+	static final long COAST_TIME_MICROSECONDS = 300000; // how long we keep the last values without seeing the target
+	static final long FRESH_TIME_MICROSECONDS = 150000; // how old the last frame can be for pidGet() (a few frames plus the latency)
+
+	// what we track (one filter each)
+	static final int CHANNEL_DISTANCE_USING_VERTICAL_FOV = 0; // in inches
+	static final int CHANNEL_DISTANCE_USING_HORIZONTAL_FOV = 1; // in inches
+	static final int CHANNEL_ANGLE = 2; // in degrees
+	static final int CHANNEL_PIXEL_DISPLACEMENT = 3; // in pixels
+	static final int CHANNEL_DISTANCE_TO_MOVE = 4; // in inches (see pidGet2())
+	static final int CHANNEL_COUNT = 5;
+
+	ICamera camera;
+
+	private final AlphaBetaFilter[] filters = new AlphaBetaFilter[CHANNEL_COUNT];
+	private final double[] measurements = new double[CHANNEL_COUNT]; // reused so we never allocate
+
+	private long lastFrameNumber = -1;
+	private long lastSeenFrameNumber = -1; // the last frame with a target
+	private long lastSeenTimestamp; // capture time of the last frame with a target (in microseconds, FPGA time)
+	private boolean isTracking;
+
+
+	public TrackingCamera(ICamera camera_in) {
+		camera = camera_in;
+
+		for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+			filters[channel] = new AlphaBetaFilter(ALPHA, BETA);
+		}
+	}
+
+	// Private. Feeds the filters with the latest frame (if it is new) and checks if we lost track of the target
+	private void update() {
+		camera.acquireTargets(false); // lets the camera read new values if it needs to
+		long frameNumber = camera.getFrameNumber();
+
+		if (frameNumber != lastFrameNumber) {
+			boolean hasTarget = camera.getNumberOfTargets() > 0;
+			long captureTimestamp = camera.getCaptureTimestamp();
+
+			measurements[CHANNEL_DISTANCE_USING_VERTICAL_FOV] = camera.getDistanceToCompositeTargetUsingVerticalFov();
+			measurements[CHANNEL_DISTANCE_USING_HORIZONTAL_FOV] = camera.getDistanceToCompositeTargetUsingHorizontalFov();
+			measurements[CHANNEL_ANGLE] = camera.getAngleToTurnToCompositeTarget();
+			measurements[CHANNEL_PIXEL_DISPLACEMENT] = camera.getPixelDisplacementToCenterToCompositeTarget();
+			measurements[CHANNEL_DISTANCE_TO_MOVE] = hasTarget ? -camera.pidGet2() : 0;
+
+			if (camera.getFrameNumber() == frameNumber) { // otherwise we might have mixed two frames (we will try again next time)
+				lastFrameNumber = frameNumber;
+
+				if (hasTarget && areMeasurementsFinite()) {
+					if (!isTracking) { // the rates we had (if any) are meaningless now
+						for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+							filters[channel].reset();
+						}
+					}
+
+					for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+						filters[channel].update(captureTimestamp / 1e6, measurements[channel]);
+					}
+
+					lastSeenFrameNumber = frameNumber;
+					lastSeenTimestamp = captureTimestamp;
+					isTracking = true;
+				}
+			}
+		}
+
+		if (isTracking && RobotController.getFPGATime() - lastSeenTimestamp > COAST_TIME_MICROSECONDS) {
+			isTracking = false;
+			Telemetry.log("TrackingCamera: lost track of the target");
+		}
+	}
+
+	// Private. The distances are infinite if the target is too small to be measured
+	private boolean areMeasurementsFinite() {
+		for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+			if (Double.isInfinite(measurements[channel]) || Double.isNaN(measurements[channel])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Private. Returns true if the latest frame has the target and is recent
+	private boolean isFresh() {
+		return isTracking && lastSeenFrameNumber == lastFrameNumber
+			&& RobotController.getFPGATime() - lastSeenTimestamp <= FRESH_TIME_MICROSECONDS;
+	}
+
+	// Private. Returns the filtered value of the channel (at the time the last frame with the target was captured)
+	private double getValue(int channel) {
+		return filters[channel].getValue();
+	}
+
+	// returns false if we never saw the target or did not see it for too long
+	public synchronized boolean isTracking() {
+		update();
+		return isTracking;
+	}
+
+	// returns how fast the distance to the target changes (in inches per second, negative as we get closer)
+	public synchronized double getDistanceRate() {
+		update();
+		return isTracking ? filters[CHANNEL_DISTANCE_TO_MOVE].getRate() : 0;
+	}
+
+	// returns how fast the angle to the target changes (in degrees per second)
+	public synchronized double getAngleRate() {
+		update();
+		return isTracking ? filters[CHANNEL_ANGLE].getRate() : 0;
+	}
+
+	public synchronized boolean isCoherent() {
+		return camera.isCoherent();
+	}
+
+	public synchronized int getNumberOfTargets() {
+		return camera.getNumberOfTargets(); // in the latest frame
+	}
+
+	public synchronized boolean acquireTargets(boolean waitForNewInfo) {
+		camera.acquireTargets(waitForNewInfo);
+		update();
+		return isTracking;
+	}
+
+	public synchronized double getLatency() {
+		update();
+		return isTracking ? (RobotController.getFPGATime() - lastSeenTimestamp) / 1e6 : camera.getLatency();
+	}
+
+	// the values are those of the last frame with the target
+	public synchronized long getCaptureTimestamp() {
+		update();
+		return isTracking ? lastSeenTimestamp : camera.getCaptureTimestamp();
+	}
+
+	public synchronized long getFrameNumber() {
+		return camera.getFrameNumber();
+	}
+
+	public boolean waitForFrameAfter(long frameNumber, double timeout) {
+		return camera.waitForFrameAfter(frameNumber, timeout); // not synchronized so others can read while we wait
+	}
+
+	public synchronized boolean checkForOpening() {
+		return camera.checkForOpening();
+	}
+
+	public synchronized double getDistanceToCompositeTargetUsingVerticalFov() {
+		update();
+		return isTracking ? getValue(CHANNEL_DISTANCE_USING_VERTICAL_FOV) : Double.POSITIVE_INFINITY;
+	}
+
+	public synchronized double getDistanceToCompositeTargetUsingHorizontalFov() {
+		update();
+		return isTracking ? getValue(CHANNEL_DISTANCE_USING_HORIZONTAL_FOV) : Double.POSITIVE_INFINITY;
+	}
+
+	public synchronized double getAngleToTurnToCompositeTarget() {
+		update();
+		return isTracking ? getValue(CHANNEL_ANGLE) : 0;
+	}
+
+	public synchronized double getPixelDisplacementToCenterToCompositeTarget() {
+		update();
+		return isTracking ? getValue(CHANNEL_PIXEL_DISPLACEMENT) : 0;
+	}
+
+	// the arrays are the ones of the latest frame (they are not filtered)
+	public synchronized double[] getArea() {
+		return camera.getArea();
+	}
+
+	public synchronized double[] getWidth() {
+		return camera.getWidth();
+	}
+
+	public synchronized double[] getHeight() {
+		return camera.getHeight();
+	}
+
+	public synchronized double[] getCenterX() {
+		return camera.getCenterX();
+	}
+
+	public synchronized double[] getCenterY() {
+		return camera.getCenterY();
+	}
+
+	public synchronized void setPIDSourceType(PIDSourceType pidSource)
+	{
+		// always displacement!
+	}
+
+	public synchronized PIDSourceType getPIDSourceType()
+	{
+		return PIDSourceType.kDisplacement;
+	}
+
+	// The drivetrain control loop that will call this method runs in a different thread than the scheduler thread,
+	// so it is important that this class be made thread-safe. This is why all the public methods are synchronized.
+	public synchronized double pidGet()
+	{
+		update();
+		// while coasting the robot keeps turning, so holding the last displacement would make us turn past the target
+		return isFresh() ? -getValue(CHANNEL_PIXEL_DISPLACEMENT) : 0; // we are located at the opposite or the displacement we need to shift by
+	}
+
+	public synchronized void setPIDSource2Type(PIDSourceType pidSource)
+	{
+		// always displacement!
+	}
+
+	public synchronized PIDSourceType getPIDSource2Type()
+	{
+		return PIDSourceType.kDisplacement;
+	}
+
+	public synchronized double pidGet2()
+	{
+		update();
+		return isTracking ? -Math.max(getValue(CHANNEL_DISTANCE_TO_MOVE), 0) : 0; // we cannot move past the target
+	}
+}
@@ -5,10 +5,10 @@ import java.util.TimerTask;
 
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.Relay;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 import frc.robot.Ports;
+import frc.robot.util.Telemetry;
 
 
 /**
@@ -84,13 +84,13 @@ public class Compressor extends Subsystem {
 		@Override
 		public void run() {
 			if (_checkPressure.get() == true) {
-				SmartDashboard.putBoolean("Check pressure ", _checkPressure.get());
+				Telemetry.putBoolean("Check pressure ", _checkPressure.get());
 				_relay.set(Relay.Value.kOff);
-				SmartDashboard.putBoolean("Compressor relay ", false);
+				Telemetry.putBoolean("Compressor relay ", false);
 			} else {
-				SmartDashboard.putBoolean("Check pressure ", _checkPressure.get());
+				Telemetry.putBoolean("Check pressure ", _checkPressure.get());
 				_relay.set(Relay.Value.kForward);
-				SmartDashboard.putBoolean("Compressor relay ", true);
+				Telemetry.putBoolean("Compressor relay ", true);
 			}
 		}
 
@@ -1,20 +1,29 @@
 package frc.robot.subsystems;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
-import edu.wpi.first.wpilibj.PIDController;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.ADXRS450_Gyro;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
+import java.io.File;
+import java.io.IOException;
+
 import frc.robot.interfaces.*;
 import frc.robot.Robot;
 import frc.robot.sensors.HMCamera;
+import frc.robot.sensors.Odometry;
 import frc.robot.commands.DrivetrainJoystickControl;
 import frc.robot.util.*;
 
@@ -32,13 +41,24 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	static final double MAX_PCT_OUTPUT = 1.0;
 		
 	static final int TALON_TIMEOUT_MS = 10;
+	
+	// the positions and velocities are sent as often as odometry reads them (instead of every 20 ms by default)
+	// this adds about 300 frames per second on the CAN bus for the two masters (a few percent of its capacity)
+	static final int FEEDBACK_STATUS_FRAME_PERIOD_MS = (int) Math.round(Odometry.PERIOD_SECONDS * 1000);
 	public static final int TICKS_PER_REVOLUTION = 4096;
 
 
-	// turn using camera settings
-	// NOTE: it might make sense to decrease the PID controller period below 0.02 sec (which is the period used by the main loop)
-	public static final double TURN_USING_CAMERA_PID_CONTROLLER_PERIOD_SECONDS = .01; // 0.01 sec = 10 ms 	
+	// control loop settings (the turn, heading hold and camera PID controllers all run in the same loop, one at a time)
+	public static final double CONTROL_LOOP_PERIOD_SECONDS = .01; // 0.01 sec = 10 ms (faster than the main loop)
+
+	static final int CONTROLLER_NONE = 0;
+	static final int CONTROLLER_TURN = 1;
+	static final int CONTROLLER_TURN_USING_CAMERA = 2;
+	static final int CONTROLLER_MOVE_USING_CAMERA = 3;
+	static final int CONTROLLER_HOLD_HEADING = 4;
+
 	
+	// turn using camera settings
 	public static final double MIN_TURN_USING_CAMERA_PCT_OUTPUT = 0.3;
 	public static final double MAX_TURN_USING_CAMERA_PCT_OUTPUT = 0.6;
 	
@@ -48,15 +68,12 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	
 	public static final int PIXEL_THRESHOLD = HMCamera.HORIZONTAL_CAMERA_RES_PIXELS / 20; // about 3 degrees - TODO adjust as needed
 	
-	public final static int TURN_USING_CAMERA_ON_TARGET_MINIMUM_COUNT = 25; // number of times/iterations we need to be on target to really be on target
-
-	private final static int TURN_USING_CAMERA_STALLED_MINIMUM_COUNT = TURN_USING_CAMERA_ON_TARGET_MINIMUM_COUNT * 2 + 30; // number of times/iterations we need to be stalled to really be stalled
+	public static final int PIXELS_PER_SECOND_THRESHOLD = PIXEL_THRESHOLD * 2; // so we do not go through the target
+	
+	public static final double TURN_USING_CAMERA_SETTLE_TIME_SECONDS = 0.2; // a few frames on target (the pixel rate check already rules out sweeping through the target)
 
 	
 	// turn settings
-	// NOTE: it might make sense to decrease the PID controller period below 0.02 sec (which is the period used by the main loop)
-	static final double TURN_PID_CONTROLLER_PERIOD_SECONDS = .01; // 0.01 sec = 10 ms 	
-	
 	static final double MIN_TURN_PCT_OUTPUT = Robot.COMPETITION_BOT_CONFIG?0.6:0.3;
 	static final double MAX_TURN_PCT_OUTPUT = Robot.COMPETITION_BOT_CONFIG?0.9:0.8;
 	
@@ -66,15 +83,12 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	
 	static final int DEGREE_THRESHOLD = 3; //1;
 	
-	private final static int TURN_ON_TARGET_MINIMUM_COUNT = 10; // number of times/iterations we need to be on target to really be on target
+	static final int DEGREES_PER_SECOND_THRESHOLD = 10;
 	
-	private final static int TURN_STALLED_MINIMUM_COUNT = TURN_ON_TARGET_MINIMUM_COUNT * 2 + 30; // number of times/iterations we need to be stalled to really be stalled
+	static final double TURN_SETTLE_TIME_SECONDS = 0.1; // about five loops, enough to ride out the gyro noise as we are also turning slower than the rate threshold
 	
 
 	// move using camera settings
-	// NOTE: it might make sense to decrease the PID controller period below 0.02 sec (which is the period used by the main loop)
-	public static final double MOVE_USING_CAMERA_PID_CONTROLLER_PERIOD_SECONDS = .01; // 0.01 sec = 10 ms 	
-	
 	public static final double MIN_MOVE_USING_CAMERA_PCT_OUTPUT = 0.1;
 	public static final double MAX_MOVE_USING_CAMERA_PCT_OUTPUT = 0.5;
 	
@@ -84,15 +98,20 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	
 	public static final int DISTANCE_THRESHOLD_INCHES = 12; // TODO adjust as needed
 	
-	public final static int MOVE_USING_CAMERA_ON_TARGET_MINIMUM_COUNT = 25; // number of times/iterations we need to be on target to really be on target
-
-	private final static int MOVE_USING_CAMERA_STALLED_MINIMUM_COUNT = MOVE_USING_CAMERA_ON_TARGET_MINIMUM_COUNT * 2 + 30; // number of times/iterations we need to be stalled to really be stalled
+	public static final int INCHES_PER_SECOND_THRESHOLD = 12; // TODO adjust as needed
+	
+	public static final double MOVE_USING_CAMERA_SETTLE_TIME_SECONDS = 0.2; // a few frames on target (we are also almost still, see INCHES_PER_SECOND_THRESHOLD)
 
 
 	// move settings
 	static final int PRIMARY_PID_LOOP = 0;
 	
-	static final int SLOT_0 = 0;
+	// each kind of move has its own slot on the motor controllers (all loaded once in the constructor)
+	static final int MOVE_SLOT = 0;
+	static final int MOVE_HIGH_SPEED_SLOT = 1;
+	static final int ARC_SLOT = 2;
+	static final int MOTION_MAGIC_SLOT = 3;
+	static final int MOTION_PROFILE_SLOT = MOTION_MAGIC_SLOT; // motion profiles need the same feed forward
 	
 	static final double REDUCED_PCT_OUTPUT = Robot.COMPETITION_BOT_CONFIG?0.4:0.3;
 	static final double HIGH_PCT_OUTPUT = Robot.COMPETITION_BOT_CONFIG?0.5:0.4;
@@ -101,44 +120,154 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	static final double MOVE_INTEGRAL_GAIN = 0.0;
 	static final double MOVE_DERIVATIVE_GAIN = 0.0;
 	
+	static final double ARC_PROPORTIONAL_GAIN = MOVE_PROPORTIONAL_GAIN;
+	static final double ARC_INTEGRAL_GAIN = MOVE_INTEGRAL_GAIN;
+	static final double ARC_DERIVATIVE_GAIN = MOVE_DERIVATIVE_GAIN;
+	
 	static final int TALON_TICK_THRESH = 128;
 	static final double TICK_THRESH = TALON_TICK_THRESH * 4;
 	static final double TICK_PER_100MS_THRESH = 64; // about a tenth of a rotation per second 
+	
+	// stall detection settings (a side is stalled if it is driven and draws current but does not move)
+	static final double STALL_MIN_PCT_OUTPUT = 0.1;
+	static final double STALL_MIN_CURRENT_AMPS = 10; // TODO measure
 
-	private final static int MOVE_ON_TARGET_MINIMUM_COUNT = 10; // number of times/iterations we need to be on target to really be on target
-
-	private final static int MOVE_STALLED_MINIMUM_COUNT = MOVE_ON_TARGET_MINIMUM_COUNT * 2 + 30; // number of times/iterations we need to be stalled to really be stalled
+	static final double MOVE_SETTLE_TIME_SECONDS = 0.1; // how long we need to be on target (and almost still) to really be on target (the velocity check does the rest)
+	
+	static final double BLEND_LOOK_AHEAD_SECONDS = 0.02; // a blended move hands off when it is less than one loop of travel from its target
+	static final double BLEND_EXPIRY_SECONDS = 0.05; // if no move takes over a blend within about two loops we stop
+	
+	
+	// heading hold settings (straight moves are corrected using the gyro)
+	static final double HEADING_HOLD_PROPORTIONAL_GAIN = 0.02; // TODO tune 5 degrees -> 0.1 pct output
+	static final double HEADING_HOLD_INTEGRAL_GAIN = 0.0;
+	static final double HEADING_HOLD_DERIVATIVE_GAIN = 0.0;
+	
+	static final double MAX_HEADING_HOLD_PCT_OUTPUT = 0.15; // the correction is added to what the position loops output
+	
+	
+	// motion magic settings
+	// NOTE: the motion magic units are ticks per 100 ms (velocity) and ticks per 100 ms per second (acceleration)
+	static final int MAX_VELOCITY_TICKS_PER_100MS = 3100; // TODO measure - velocity reached at 100% output (~10 ft/s)
+	
+	public static final int MOTION_MAGIC_CRUISE_VELOCITY = MAX_VELOCITY_TICKS_PER_100MS * 3 / 4; // we leave some headroom for the P term
+	public static final int MOTION_MAGIC_ACCELERATION = MOTION_MAGIC_CRUISE_VELOCITY * 2; // we reach cruise velocity in half a second
+	
+	// F gain is specified in output units per velocity unit (1023 is full output)
+	static final double MOTION_MAGIC_FEED_FORWARD_GAIN = 1023.0 / MAX_VELOCITY_TICKS_PER_100MS;
+	static final double MOTION_MAGIC_PROPORTIONAL_GAIN = MOVE_PROPORTIONAL_GAIN;
+	static final double MOTION_MAGIC_INTEGRAL_GAIN = 0.0;
+	static final double MOTION_MAGIC_DERIVATIVE_GAIN = 0.0;
+	
+	
+	// path following settings
+	static final double PATH_LOOKAHEAD_INCHES = 24; // the larger the smoother (but the more corners are cut)
+	static final double PATH_CRUISE_SPEED_INCHES_PER_SECOND = 72; // 6 ft/s
+	static final double PATH_ACCELERATION_INCHES_PER_SECOND_SQUARED = 72;
+	static final double PATH_MIN_SPEED_INCHES_PER_SECOND = 6;
+	static final double PATH_END_TOLERANCE_INCHES = 2;
+	
+	
+	// velocity control settings
+	// the feed forward comes from the characterization and is sent as an arbitrary feed forward,
+	// so we need a slot without F gain (the P gain of the arc slot is also a sensible velocity P gain)
+	static final int VELOCITY_SLOT = ARC_SLOT;
+	
+	static final double MAX_VELOCITY_INCHES_PER_SECOND = MAX_VELOCITY_TICKS_PER_100MS * 10.0 / TICKS_PER_REVOLUTION * PERIMETER_WHEEL_INCHES;
+	static final double NOMINAL_BATTERY_VOLTS = 12;
+	
+	// used until the drivetrain has been characterized (equivalent to the F gain of the motion magic slot)
+	static final FeedforwardGains DEFAULT_FEED_FORWARD_GAINS = new FeedforwardGains(0, NOMINAL_BATTERY_VOLTS / MAX_VELOCITY_INCHES_PER_SECOND, 0);
+	
+	
+	// velocity drive settings (teleop)
+	static final double VELOCITY_DRIVE_MAX_INCHES_PER_SECOND = MAX_VELOCITY_INCHES_PER_SECOND * 3 / 4; // headroom so a low battery does not matter
+	static final double VELOCITY_DRIVE_MAX_ACCELERATION_INCHES_PER_SECOND_SQUARED = 150; // so the feed forward does not jerk the robot
+	static final double VELOCITY_DRIVE_MAX_DT_SECONDS = 0.1; // beyond that we assume we were not velocity driving
+	static final double JOYSTICK_DEADBAND = 0.02; // same as DifferentialDrive
+	
+	
+	// characterization settings (quasi-static ramps then steps, forward then backward)
+	public static final String CHARACTERIZATION_FILE = "drivetrain_characterization.properties"; // in the deploy directory
+	
+	static final double CHARACTERIZATION_RAMP_VOLTS_PER_SECOND = 0.5; // slow enough for the acceleration to be negligible
+	static final double CHARACTERIZATION_RAMP_SECONDS = 8;
+	static final double CHARACTERIZATION_STEP_VOLTS = 6;
+	static final double CHARACTERIZATION_STEP_SECONDS = 1.5;
+	static final double CHARACTERIZATION_PAUSE_SECONDS = 1.5; // so the robot stops between phases
+	
+	// odd phases are pauses
+	static final double[] CHARACTERIZATION_PHASE_SECONDS = { CHARACTERIZATION_RAMP_SECONDS, CHARACTERIZATION_PAUSE_SECONDS, CHARACTERIZATION_RAMP_SECONDS,
+		CHARACTERIZATION_PAUSE_SECONDS, CHARACTERIZATION_STEP_SECONDS, CHARACTERIZATION_PAUSE_SECONDS, CHARACTERIZATION_STEP_SECONDS };
+	
+	static final int CHARACTERIZATION_MAX_SAMPLES = 2048; // more than enough at 50 Hz
 	
 	
 	// variables
 	boolean isMoving; // indicates that the drivetrain is moving using the PID controllers embedded on the motor controllers 
+	boolean isUsingMotionMagic; // indicates that the current move is profiled by the motor controllers
+	boolean isFollowingTrajectory; // indicates that the drivetrain is following a trajectory streamed to the motor controllers
+	boolean isFollowingPath; // indicates that the drivetrain is following a path using the pure pursuit controller hereunder
 	boolean isTurning;  // indicates that the drivetrain is turning using the PID controller hereunder
 	boolean isTurningUsingCamera;  // indicates that the drivetrain is turning using the second PID controller hereunder
+	boolean isTurningUsingCameraAndGyro; // indicates that vision is moving the setpoint of the turn using the gyro
+	long lastCameraFrameNumber = -1; // the last frame used to move the setpoint of the turn
 	boolean isMovingUsingCamera;  // indicates that the drivetrain is turning using the third PID controller hereunder
+	boolean isCharacterizing; // indicates that the drivetrain is driven open loop to measure its feed forward
+	boolean isVelocityDriveEnabled; // indicates that the joysticks set velocities instead of percent outputs
+	boolean isVelocityDriving; // indicates that the last joystick control was done using velocity control
+	double lastVelocityDriveTimestamp;
 	boolean isReallyStalled;
 	
+	StallDetector leftStallDetector, rightStallDetector;
+	
 	double ltac, rtac; // target positions 
+	double blendTimestamp; // when the previous move handed off (in seconds)
+	double moveTimestamp; // when the current move started (in seconds, the snapshots captured before are ignored)
+	double commandedHeading; // the heading the moves should end up with (in degrees, follows the arcs when blending)
+	
+	boolean isBlendedEnd; // indicates that the current move hands off to the next one instead of coming to rest
+	boolean isBlending; // indicates that the previous move handed off to the next one (which has not started yet)
 	
-	private int onTargetCountMoving; // counter indicating how many times/iterations we were on target
-	private int onTargetCountTurning; // counter indicating how many times/iterations we were on target
-	private int onTargetCountTurningUsingCamera; // counter indicating how many times/iterations we were on target
-	private int onTargetCountMovingUsingCamera; // counter indicating how many times/iterations we were on target
-	private int stalledCount; // counter indicating how many times/iterations we were stalled
+	// tell when we have been on target long enough
+	SettleDetector moveSettleDetector, turnSettleDetector, turnUsingCameraSettleDetector, moveUsingCameraSettleDetector;
 
 	WPI_TalonSRX masterLeft, masterRight; // motor controllers
+	MotorControllerConfigCache masterLeftConfig, masterRightConfig; // so we only reconfigure what needs to be
+	volatile MotorControllerSnapshot masterLeftSnapshot, masterRightSnapshot; // what the motor controllers reported this loop
 	BaseMotorController followerLeft, followerRight; // motor controllers
 	
+	MotionProfileStreamer streamer; // streams trajectories to the motor controllers
+	
 	ADXRS450_Gyro gyro; // gyroscope
 	
+	Odometry odometry; // keeps track of where we are on the field (regardless of resets)
+	
+	PurePursuitController pathFollower; // follows paths using the odometry
+	double lastPathUpdateTimestamp;
+	
+	FeedforwardGains feedforwardGains; // volts needed for a given velocity and acceleration
+	double lastLeftSpeed, lastRightSpeed; // velocity setpoints of the last loop (in/s) so we know the acceleration
+	
+	FeedforwardCharacterizer characterizer; // records what we need to fit the feed forward gains
+	double characterizationStartTime;
+	int characterizationPhase;
+	double characterizationVolts; // what we applied in the last loop (robot frame)
+	
 	DifferentialDrive differentialDrive; // a class to simplify tank or arcade drive (open loop driving) 
 	
 	Robot robot; // a reference to the robot
 	
-	PIDController turnPidController; // the PID controller used to turn
+	SimplePIDController turnPidController; // the PID controller used to turn
 
 	ICamera camera;
-	PIDController turnUsingCameraPidController; // the PID controller used to turn using camera
-	PIDController moveUsingCameraPidController; // the PID controller used to turn
+	SimplePIDController turnUsingCameraPidController; // the PID controller used to turn using camera
+	SimplePIDController moveUsingCameraPidController; // the PID controller used to move using camera
+	SimplePIDController headingHoldPidController; // the PID controller used to keep straight moves straight
+	
+	Notifier controlNotifier; // runs whichever of the PID controllers above is active
+	private final Object controlLock = new Object(); // so the outputs are never written after we stopped
+	private volatile int activeController = CONTROLLER_NONE;
 	
 	
 	public Drivetrain(WPI_TalonSRX masterLeft_in ,WPI_TalonSRX masterRight_in , BaseMotorController followerLeft_in ,BaseMotorController followerRight_in, ADXRS450_Gyro gyro_in, Robot robot_in, ICamera camera_in) 
@@ -151,6 +280,9 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		robot = robot_in;
 		camera = camera_in;
 		
+		masterLeftConfig = new MotorControllerConfigCache(masterLeft);
+		masterRightConfig = new MotorControllerConfigCache(masterRight);
+		
 		// Mode of operation during Neutral output may be set by using the setNeutralMode() function.
 		// As of right now, there are two options when setting the neutral mode of a motor controller,
 		// brake and coast.
@@ -177,6 +309,10 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		masterLeft.setSensorPhase(true);
 		masterRight.setSensorPhase(true);
 		
+		// odometry integrates the positions every 5 ms, so it would mostly read stale ones at the default rate
+		masterLeft.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, FEEDBACK_STATUS_FRAME_PERIOD_MS, TALON_TIMEOUT_MS);
+		masterRight.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, FEEDBACK_STATUS_FRAME_PERIOD_MS, TALON_TIMEOUT_MS);
+		
 		// Disables limit switches
 		masterLeft.overrideLimitSwitchesEnable(false);
 		masterRight.overrideLimitSwitchesEnable(false);
@@ -201,10 +337,31 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		
 		// set peak output to max in case if had been reduced previously
 		setNominalAndPeakOutputs(MAX_PCT_OUTPUT);
+		
+		// loads all the slots once and for all (moves then only need to select a slot)
+		setPIDParameters();
+		
+		// the sensors count backwards when the robot moves forward
+		streamer = new MotionProfileStreamer(masterLeft, masterRight, MOTION_PROFILE_SLOT, -TICKS_PER_REVOLUTION / PERIMETER_WHEEL_INCHES, TALON_TIMEOUT_MS);
+		odometry = new Odometry(masterLeft, masterRight, gyro, -PERIMETER_WHEEL_INCHES / TICKS_PER_REVOLUTION);
+		
+		feedforwardGains = FeedforwardGains.load(new File(Filesystem.getDeployDirectory(), CHARACTERIZATION_FILE), DEFAULT_FEED_FORWARD_GAINS);
+		characterizer = new FeedforwardCharacterizer(CHARACTERIZATION_MAX_SAMPLES);
+		
+		leftStallDetector = new StallDetector(STALL_MIN_PCT_OUTPUT, TICK_PER_100MS_THRESH, STALL_MIN_CURRENT_AMPS);
+		rightStallDetector = new StallDetector(STALL_MIN_PCT_OUTPUT, TICK_PER_100MS_THRESH, STALL_MIN_CURRENT_AMPS);
+		
+		moveSettleDetector = new SettleDetector(TICK_THRESH, TICK_PER_100MS_THRESH, MOVE_SETTLE_TIME_SECONDS);
+		turnSettleDetector = new SettleDetector(DEGREE_THRESHOLD, DEGREES_PER_SECOND_THRESHOLD, TURN_SETTLE_TIME_SECONDS);
+		turnUsingCameraSettleDetector = new SettleDetector(PIXEL_THRESHOLD, PIXELS_PER_SECOND_THRESHOLD, TURN_USING_CAMERA_SETTLE_TIME_SECONDS);
+		moveUsingCameraSettleDetector = new SettleDetector(DISTANCE_THRESHOLD_INCHES, INCHES_PER_SECOND_THRESHOLD, MOVE_USING_CAMERA_SETTLE_TIME_SECONDS);
+		
+		pathFollower = new PurePursuitController(PATH_LOOKAHEAD_INCHES, RADIUS_DRIVEVETRAIN_INCHES * 2, PATH_CRUISE_SPEED_INCHES_PER_SECOND,
+			PATH_ACCELERATION_INCHES_PER_SECOND_SQUARED, PATH_MIN_SPEED_INCHES_PER_SECOND, PATH_END_TOLERANCE_INCHES);
 
 		
 		//creates a PID controller
-		turnPidController = new PIDController(TURN_PROPORTIONAL_GAIN, TURN_INTEGRAL_GAIN, TURN_DERIVATIVE_GAIN, gyro, this, TURN_PID_CONTROLLER_PERIOD_SECONDS);
+		turnPidController = new SimplePIDController(TURN_PROPORTIONAL_GAIN, TURN_INTEGRAL_GAIN, TURN_DERIVATIVE_GAIN);
 		
 		turnPidController.setInputRange(-180, 180); // valid input range 
 		turnPidController.setOutputRange(-MAX_TURN_PCT_OUTPUT, MAX_TURN_PCT_OUTPUT); // output range NOTE: might need to change signs
@@ -213,7 +370,7 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		turnPidController.setAbsoluteTolerance(DEGREE_THRESHOLD); // 1 degree error tolerated
 
 		//creates a second PID controller
-		turnUsingCameraPidController = new PIDController(TURN_USING_CAMERA_PROPORTIONAL_GAIN, TURN_USING_CAMERA_INTEGRAL_GAIN, TURN_USING_CAMERA_DERIVATIVE_GAIN, camera, new PIDOutput2Adapter(this), TURN_USING_CAMERA_PID_CONTROLLER_PERIOD_SECONDS);
+		turnUsingCameraPidController = new SimplePIDController(TURN_USING_CAMERA_PROPORTIONAL_GAIN, TURN_USING_CAMERA_INTEGRAL_GAIN, TURN_USING_CAMERA_DERIVATIVE_GAIN);
 		
 		turnUsingCameraPidController.setInputRange(-HMCamera.HORIZONTAL_CAMERA_RES_PIXELS/2, HMCamera.HORIZONTAL_CAMERA_RES_PIXELS/2); // valid input range 
 		turnUsingCameraPidController.setOutputRange(-MAX_TURN_USING_CAMERA_PCT_OUTPUT, MAX_TURN_USING_CAMERA_PCT_OUTPUT); // output range NOTE: might need to change signs
@@ -221,16 +378,30 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		turnUsingCameraPidController.setAbsoluteTolerance(PIXEL_THRESHOLD); // error tolerated
 
 		//creates a third PID controller
-		moveUsingCameraPidController = new PIDController(MOVE_USING_CAMERA_PROPORTIONAL_GAIN, MOVE_USING_CAMERA_INTEGRAL_GAIN, MOVE_USING_CAMERA_DERIVATIVE_GAIN, new PIDSource2Adapter(camera), new PIDOutput3Adapter(this), MOVE_USING_CAMERA_PID_CONTROLLER_PERIOD_SECONDS);
+		moveUsingCameraPidController = new SimplePIDController(MOVE_USING_CAMERA_PROPORTIONAL_GAIN, MOVE_USING_CAMERA_INTEGRAL_GAIN, MOVE_USING_CAMERA_DERIVATIVE_GAIN);
 
 		moveUsingCameraPidController.setInputRange(-HMCamera.SAFE_DISTANCE_INCHES, HMCamera.SAFE_DISTANCE_INCHES); // valid input range 
 		moveUsingCameraPidController.setOutputRange(-MAX_MOVE_USING_CAMERA_PCT_OUTPUT, MAX_MOVE_USING_CAMERA_PCT_OUTPUT); // output range NOTE: might need to change signs
 		
 		moveUsingCameraPidController.setAbsoluteTolerance(DISTANCE_THRESHOLD_INCHES); // error tolerated
 		
+		//creates a fourth PID controller
+		headingHoldPidController = new SimplePIDController(HEADING_HOLD_PROPORTIONAL_GAIN, HEADING_HOLD_INTEGRAL_GAIN, HEADING_HOLD_DERIVATIVE_GAIN);
+		
+		headingHoldPidController.setInputRange(-180, 180); // valid input range 
+		headingHoldPidController.setOutputRange(-MAX_HEADING_HOLD_PCT_OUTPUT, MAX_HEADING_HOLD_PCT_OUTPUT);
+		
+		headingHoldPidController.setContinuous(true); // because -180 degrees is the same as 180 degrees (needs input range to be defined first)
+		
+		// one thread for all the controllers (it does nothing while none is active)
+		controlNotifier = new Notifier(this::runControlLoop);
+		controlNotifier.startPeriodic(CONTROL_LOOP_PERIOD_SECONDS);
+		
 		
 		differentialDrive = new DifferentialDrive(masterLeft, masterRight);
 		differentialDrive.setSafetyEnabled(false); // disables the stupid timeout error when we run in closed loop
+		
+		captureSnapshots(); // so the getters work before the first loop
 	}
 	
 	@Override
@@ -246,7 +417,27 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	@Override
 	public void periodic() {
 		// Put code here to be run every loop
-
+		captureSnapshots();
+		
+		boolean leftHasReset = masterLeftConfig.invalidateIfResetOccurred();
+		boolean rightHasReset = masterRightConfig.invalidateIfResetOccurred();
+		
+		if (leftHasReset || rightHasReset) {
+			setPIDParameters(); // we reload the slots as moves rely on them
+		}
+		
+		if (isFollowingPath) {
+			updatePathFollowing();
+		}
+		
+		if (isTurningUsingCameraAndGyro) {
+			updateTurnUsingCameraAndGyro();
+		}
+		
+		if (isBlending && Timer.getFPGATimestamp() - blendTimestamp > BLEND_EXPIRY_SECONDS) { // nothing took over
+			Telemetry.log("No move took over the blend.");
+			stop();
+		}
 	}  
 
 	// this method needs to be paired with checkTurnAngleUsingPidController()
@@ -254,42 +445,34 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		// switches to percentage vbus
 		stop(); // resets state
 		
-		gyro.reset(); // resets to zero for now
+		resetGyro(); // resets to zero for now
 		//double current = gyro.getAngle();
 		double heading = angle; //+ current; // calculates new heading
 		
 		turnPidController.setSetpoint(heading); // sets the heading
-		turnPidController.enable(); // begins running
+		activeController = CONTROLLER_TURN; // begins running
 		
 		isTurning = true;
-		onTargetCountTurning = 0;
+		turnSettleDetector.reset();
 		isReallyStalled = false;
-		stalledCount = 0;
+		resetStallDetection();
 	}
 		
-	// This method checks that we are within target up to ON_TARGET_MINIMUM_COUNT times
-	// It relies on its own counter
+	// This method checks that we have been within target for TURN_SETTLE_TIME_SECONDS
 	public boolean tripleCheckTurnAngleUsingPidController() {	
 		if (isTurning) {
-			boolean isOnTarget = turnPidController.onTarget();
-			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCountTurning++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCountTurning > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCountTurning = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (turning).");
-				} else {
-					// we are definitely turning
-				}
+			turnSettleDetector.update(Timer.getFPGATimestamp(), turnPidController.getError());
+			
+			if (turnSettleDetector.hasJustFailed()) { // we were on target but not anymore
+				Telemetry.log("Triple-check failed (turning).");
 			}
 			
-			if (onTargetCountTurning > TURN_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (turnSettleDetector.isSettled()) { // if we have been on target long enough
 				isTurning = false;
 			}
 			
 			if (!isTurning) {
-				System.out.println("You have reached the target (turning).");
+				Telemetry.log("You have reached the target (turning).");
 				stop();				 
 			}
 		}
@@ -303,42 +486,89 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		stop(); // resets state 
 		
 		turnUsingCameraPidController.setSetpoint(0); // we want to end centered
-		turnUsingCameraPidController.enable(); // begins running
+		activeController = CONTROLLER_TURN_USING_CAMERA; // begins running
 		
 		isTurningUsingCamera = true;
-		onTargetCountTurningUsingCamera = 0;
+		turnUsingCameraSettleDetector.reset();
 		isReallyStalled = false;
-		stalledCount = 0;
+		resetStallDetection();
 	}
 		
 	public boolean tripleCheckTurnUsingCameraPidController()
 	{
+		if (isTurningUsingCamera && !camera.isTracking()) { // we have nothing to turn to
+			Telemetry.log("Lost the target (turning using camera).");
+			stop();
+			return false;
+		}
+		
 		if (isTurningUsingCamera) {
-			boolean isOnTarget = turnUsingCameraPidController.onTarget();
-			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCountTurningUsingCamera++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCountTurningUsingCamera > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCountTurningUsingCamera = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (turning using camera).");
-				} else {
-					// we are definitely turning
-				}
+			// timed by the frames so the time between frames with the target (when the camera gives 0) does not count
+			turnUsingCameraSettleDetector.update(camera.getCaptureTimestamp() / 1e6, camera.getPixelDisplacementToCenterToCompositeTarget());
+			
+			if (turnUsingCameraSettleDetector.hasJustFailed()) { // we were on target but not anymore
+				Telemetry.log("Triple-check failed (turning using camera).");
 			}
 			
-			if (onTargetCountTurningUsingCamera > TURN_USING_CAMERA_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (turnUsingCameraSettleDetector.isSettled()) { // if we have been on target long enough
 				isTurningUsingCamera = false;
 			}
 			
 			if (!isTurningUsingCamera) {
-				System.out.println("You have reached the target (turning using camera).");
+				Telemetry.log("You have reached the target (turning using camera).");
 				stop();				 
 			}
 		}
 		return isTurningUsingCamera;
 	}
 
+	// this method needs to be paired with tripleCheckTurnUsingCameraAndGyro()
+	// the fast loop runs on the gyro, vision only moves its setpoint (so the camera latency cannot make us oscillate)
+	public void turnUsingCameraAndGyro()
+	{
+		// switches to percentage vbus
+		stop(); // resets state 
+		
+		turnPidController.setSetpoint(Math.IEEEremainder(gyro.getAngle(), 360)); // we stay where we are until we see the target
+		activeController = CONTROLLER_TURN; // begins running
+		
+		isTurning = true;
+		isTurningUsingCameraAndGyro = true;
+		lastCameraFrameNumber = -1;
+		turnSettleDetector.reset();
+		isReallyStalled = false;
+		resetStallDetection();
+		
+		updateTurnUsingCameraAndGyro(); // so we use the latest frame right away
+	}
+	
+	// Private. Points the turn at the target seen in the latest frame (this is done once per new frame)
+	private void updateTurnUsingCameraAndGyro()
+	{
+		long frameNumber = camera.getFrameNumber();
+		
+		if (frameNumber != lastCameraFrameNumber && camera.acquireTargets(false)) {
+			lastCameraFrameNumber = frameNumber;
+			
+			long captureTimestamp = camera.getCaptureTimestamp();
+			SensorHistory history = odometry.getHistory();
+			
+			double headingThen = history.get(captureTimestamp, Odometry.HISTORY_HEADING); // where we were pointing when the frame was captured
+			double headingNow = history.getNewest(Odometry.HISTORY_HEADING);
+			
+			if (!Double.isNaN(headingThen)) { // the frame might be older than the history
+				// we have turned by (headingNow - headingThen) since the frame was captured
+				double targetAngle = gyro.getAngle() + camera.getAngleToTurnToCompositeTarget() - (headingNow - headingThen);
+				turnPidController.moveSetpoint(Math.IEEEremainder(targetAngle, 360));
+			}
+		}
+	}
+	
+	public boolean tripleCheckTurnUsingCameraAndGyro()
+	{
+		return tripleCheckTurnAngleUsingPidController(); // this is the same turn, only the setpoint moves
+	}
+
 	// this method needs to be paired with checkMoveUsingCameraPidController()
 	public void moveUsingCameraPidController()
 	{
@@ -346,36 +576,35 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		stop(); // resets state 
 		
 		moveUsingCameraPidController.setSetpoint(0); // we want to end centered
-		moveUsingCameraPidController.enable(); // begins running
+		activeController = CONTROLLER_MOVE_USING_CAMERA; // begins running
 		
 		isMovingUsingCamera = true;
-		onTargetCountMovingUsingCamera = 0;
+		moveUsingCameraSettleDetector.reset();
 		isReallyStalled = false;
-		stalledCount = 0;
+		resetStallDetection();
 	}
 		
 	public boolean tripleCheckMoveUsingCameraPidController()
 	{
+		if (isMovingUsingCamera && !camera.isTracking()) { // we have nothing to move to
+			Telemetry.log("Lost the target (moving using camera).");
+			stop();
+			return false;
+		}
+		
 		if (isMovingUsingCamera) {
-			boolean isOnTarget = moveUsingCameraPidController.onTarget();
-			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCountMovingUsingCamera++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCountMovingUsingCamera > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCountMovingUsingCamera = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (moving using camera).");
-				} else {
-					// we are definitely turning
-				}
+			moveUsingCameraSettleDetector.update(Timer.getFPGATimestamp(), moveUsingCameraPidController.getError());
+			
+			if (moveUsingCameraSettleDetector.hasJustFailed()) { // we were on target but not anymore
+				Telemetry.log("Triple-check failed (moving using camera).");
 			}
 			
-			if (onTargetCountMovingUsingCamera > MOVE_USING_CAMERA_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (moveUsingCameraSettleDetector.isSettled()) { // if we have been on target long enough
 				isMovingUsingCamera = false;
 			}
 			
 			if (!isMovingUsingCamera) {
-				System.out.println("You have reached the target (moving using camera).");
+				Telemetry.log("You have reached the target (moving using camera).");
 				stop();				 
 			}
 		}
@@ -384,76 +613,382 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		
 	public void moveDistance(double dist) // moves the distance in inch given
 	{
-		moveDistance(dist, REDUCED_PCT_OUTPUT);
+		moveDistance(dist, MOVE_SLOT);
 	}
 	
 	public void moveDistanceHighSpeed(double dist) // moves the distance in inch given
 	{
-		moveDistance(dist, HIGH_PCT_OUTPUT);
+		moveDistance(dist, MOVE_HIGH_SPEED_SLOT);
 	}
 	
 	// this method needs to be paired with checkMoveDistance()
-	public void moveDistance(double dist, double percentOutput) // moves the distance in inch given
+	// the slot determines the gains and the closed loop peak output used
+	private void moveDistance(double dist, int slot) // moves the distance in inch given
 	{
-		stop(); // in case we were still doing something
-		
-		resetEncoders();
-		setPIDParameters();
-		setNominalAndPeakOutputs(percentOutput); //this has a global impact, so we reset in stop()
+		beginMove(); // stops and resets the encoders unless the previous move is blending into this one
 		
-		rtac = dist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
-		ltac = dist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		selectProfileSlot(slot); // does not block, unlike reconfiguring the gains and peak outputs
 		
-		rtac = - rtac; // account for fact that front of robot is back from sensor's point of view
-		ltac = - ltac;
+		// account for fact that front of robot is back from sensor's point of view (the targets follow the previous ones when blending)
+		rtac -= dist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		ltac -= dist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
 		
-		System.out.println("rtac, ltac: " + rtac + ", " + ltac);
+		Telemetry.log("rtac, ltac: " + rtac + ", " + ltac);
 		masterRight.set(ControlMode.Position, rtac);
 		masterLeft.set(ControlMode.Position, ltac);
 
 		isMoving = true;
-		onTargetCountMoving = 0;
+		holdHeading(); // the control loop now corrects the outputs using the gyro
+		moveSettleDetector.reset();
 		isReallyStalled = false;
-		stalledCount = 0;
+		resetStallDetection();
+	}
+	
+	// the current move will hand off to the next one without stopping (this must be called after the move is started)
+	// the next move must be one of the moves that can be paired with tripleCheckMoveDistance(), anything else stops first
+	// (and if nothing takes over within a couple of loops we stop)
+	public void blendIntoNextMove() {
+		isBlendedEnd = true;
+	}
+	
+	// returns true if the previous move handed off to the next one (so the command should not stop)
+	public boolean isBlending() {
+		return isBlending;
+	}
+	
+	// Private. Prepares a move: if the previous move is blending into this one we keep going from its targets,
+	// otherwise we stop and reset the encoders so the targets start from zero
+	private void beginMove() {
+		moveTimestamp = Timer.getFPGATimestamp();
+		
+		if (isBlending) {
+			synchronized (controlLock) { // the new move starts its own heading hold if needed
+				activeController = CONTROLLER_NONE;
+			}
+			
+			isBlending = false;
+			isBlendedEnd = false;
+			isUsingMotionMagic = false;
+		} else {
+			stop(); // in case we were still doing something
+			
+			resetEncoders();
+			rtac = 0;
+			ltac = 0;
+			commandedHeading = gyro.getAngle(); // the gyro is not reset so the pose is not affected
+		}
+	}
+	
+	// Private. Returns true if the snapshots were captured after the current move started
+	// (the periodic() method runs before the command that started the move, so the snapshots of that loop are older)
+	private boolean areSnapshotsCurrent() {
+		return masterLeftSnapshot.getTimestamp() >= moveTimestamp && masterRightSnapshot.getTimestamp() >= moveTimestamp;
+	}
+	
+	// Private. Checks if both sides have (all but) reached their targets, so we can hand off to the next move
+	private boolean isCloseEnoughToBlend() {
+		return Math.abs(rtac - masterRightSnapshot.getPosition()) < getBlendDistance(masterRightSnapshot.getVelocity())
+			&& Math.abs(ltac - masterLeftSnapshot.getPosition()) < getBlendDistance(masterLeftSnapshot.getVelocity());
+	}
+	
+	// Private. Returns the distance (in ticks) from the target at which we hand off to the next move
+	// (how far we travel in one loop, but at least the tolerance used to be on target)
+	private double getBlendDistance(int velocity) {
+		return Math.max(TICK_THRESH, Math.abs(velocity) * BLEND_LOOK_AHEAD_SECONDS * 10); // velocity in ticks per 100 ms
+	}
+	
+	// Private. Makes the control loop keep the commanded heading until we stop (this must be called after the targets are set)
+	// the commanded heading (not the gyro) is used so a move that took over from an arc still finishes the turn
+	private void holdHeading() {
+		headingHoldPidController.setSetpoint(Math.IEEEremainder(commandedHeading, 360));
+		activeController = CONTROLLER_HOLD_HEADING; // begins running
 	}
 	
 	public boolean tripleCheckMoveDistance() {
-		if (isMoving) {
+		if (isMoving && areSnapshotsCurrent()) { // otherwise we will check again next loop
 			
-			double rerror = masterRight.getClosedLoopError(PRIMARY_PID_LOOP);
-			double lerror = masterLeft.getClosedLoopError(PRIMARY_PID_LOOP);
+			double rerror, lerror;
 			
-			boolean isOnTarget = (Math.abs(rerror) < TICK_THRESH && Math.abs(lerror) < TICK_THRESH);
+			if (isUsingMotionMagic) {
+				// the closed loop error is relative to the current point of the profile, not to the final target
+				rerror = rtac - masterRightSnapshot.getPosition();
+				lerror = ltac - masterLeftSnapshot.getPosition();
+			} else {
+				rerror = masterRightSnapshot.getClosedLoopError();
+				lerror = masterLeftSnapshot.getClosedLoopError();
+			}
 			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCountMoving++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCountMoving > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCountMoving = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (moving).");
-				} else {
-					// we are definitely moving
-					//System.out.println("ltac, rtac: " + ltac + ", " + rtac);
-					//System.out.println("encoder left: " + masterLeft.getSelectedSensorPosition(PRIMARY_PID_LOOP));
-					//System.out.println("encoder right: " + masterRight.getSelectedSensorPosition(PRIMARY_PID_LOOP));
-					
-					//System.out.println("moving error left: " + lerror);
-					//System.out.println("moving error right: " + rerror);
-				}
+			if (isBlendedEnd && isCloseEnoughToBlend()) { // we do not come to rest, the next move takes over from here
+				Telemetry.log("Blending into the next move.");
+				isMoving = false;
+				isBlending = true;
+				blendTimestamp = Timer.getFPGATimestamp();
+				return false;
 			}
 			
-			if (onTargetCountMoving > MOVE_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			// both sides need to be on target and almost still
+			double error = Math.max(Math.abs(rerror), Math.abs(lerror));
+			double velocity = Math.max(Math.abs(masterRightSnapshot.getVelocity()), Math.abs(masterLeftSnapshot.getVelocity()));
+			
+			moveSettleDetector.update(masterLeftSnapshot.getTimestamp(), error, velocity);
+			
+			if (moveSettleDetector.hasJustFailed()) { // we were on target but not anymore
+				Telemetry.log("Triple-check failed (moving).");
+			}
+			
+			if (moveSettleDetector.isSettled()) { // if we have been on target long enough
 				isMoving = false;
 			}
 			
 			if (!isMoving) {
-				System.out.println("You have reached the target (moving).");
+				Telemetry.log("You have reached the target (moving).");
 				stop();				 
 			}
 		}
 		return isMoving;
 	}
 	
+	public void moveDistanceUsingMotionMagic(double dist) // moves the distance in inch given
+	{
+		moveDistanceUsingMotionMagic(dist, MOTION_MAGIC_CRUISE_VELOCITY, MOTION_MAGIC_ACCELERATION);
+	}
+	
+	// this method needs to be paired with checkMoveDistance()
+	// the Talons generate a trapezoidal profile from the cruise velocity (in ticks per 100 ms) and acceleration (in ticks per 100 ms per second)
+	public void moveDistanceUsingMotionMagic(double dist, int cruiseVelocity, int acceleration) // moves the distance in inch given
+	{
+		beginMove(); // stops and resets the encoders unless the previous move is blending into this one
+		
+		selectProfileSlot(MOTION_MAGIC_SLOT);
+		setMotionMagicParameters(cruiseVelocity, acceleration); // only blocks if they changed since the last move
+		
+		// account for fact that front of robot is back from sensor's point of view (the targets follow the previous ones when blending)
+		rtac -= dist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		ltac -= dist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		
+		Telemetry.log("rtac, ltac (motion magic): " + rtac + ", " + ltac);
+		masterRight.set(ControlMode.MotionMagic, rtac);
+		masterLeft.set(ControlMode.MotionMagic, ltac);
+
+		isMoving = true;
+		isUsingMotionMagic = true;
+		holdHeading(); // the control loop now corrects the outputs using the gyro
+		moveSettleDetector.reset();
+		isReallyStalled = false;
+		resetStallDetection();
+	}
+	
+	// this method needs to be paired with tripleCheckFollowTrajectory()
+	public void followTrajectory(Trajectory trajectory)
+	{
+		stop(); // in case we were still doing something
+		
+		Telemetry.log("Following trajectory (" + trajectory.size() + " points, " + trajectory.getDuration() + " s)");
+		odometry.onEncodersReset(); // before the streamer starts as we do not know when the Talons will zero
+		streamer.start(trajectory); // the first point resets the encoders
+		
+		isFollowingTrajectory = true;
+		moveSettleDetector.reset();
+	}
+	
+	public boolean tripleCheckFollowTrajectory() {
+		if (isFollowingTrajectory) {
+			
+			if (streamer.isDone()) { // the last point has been reached and is being held
+				double rerror = masterRightSnapshot.getClosedLoopError();
+				double lerror = masterLeftSnapshot.getClosedLoopError();
+				
+				double error = Math.max(Math.abs(rerror), Math.abs(lerror));
+				double velocity = Math.max(Math.abs(masterRightSnapshot.getVelocity()), Math.abs(masterLeftSnapshot.getVelocity()));
+				
+				moveSettleDetector.update(masterLeftSnapshot.getTimestamp(), error, velocity);
+				
+				if (moveSettleDetector.hasJustFailed()) { // we were on target but not anymore
+					Telemetry.log("Triple-check failed (following trajectory).");
+				}
+				
+				if (moveSettleDetector.isSettled()) { // if we have been on target long enough
+					isFollowingTrajectory = false;
+				}
+			} else if (!streamer.isRunning()) { // something stopped the streamer
+				isFollowingTrajectory = false;
+			}
+			
+			if (!isFollowingTrajectory) {
+				Telemetry.log("You have reached the target (following trajectory).");
+				stop();				 
+			}
+		}
+		return isFollowingTrajectory;
+	}
+	
+	// this method needs to be paired with tripleCheckFollowPath()
+	public void followPath(Path path)
+	{
+		stop(); // in case we were still doing something
+		
+		Telemetry.log("Following path (" + path.size() + " waypoints, " + path.getLength() + " in" + (path.isReversed() ? ", reversed)" : ")"));
+		selectProfileSlot(VELOCITY_SLOT);
+		pathFollower.start(path);
+		lastPathUpdateTimestamp = Timer.getFPGATimestamp();
+		lastLeftSpeed = 0;
+		lastRightSpeed = 0;
+		
+		isFollowingPath = true;
+		updatePathFollowing(); // so we start moving right away
+	}
+	
+	// Private. Computes and applies the wheel speeds for the current pose (this is done once per loop).
+	private void updatePathFollowing()
+	{
+		Pose pose = odometry.getPose();
+		double now = Timer.getFPGATimestamp();
+		
+		double dt = now - lastPathUpdateTimestamp;
+		
+		pathFollower.update(pose, dt);
+		lastPathUpdateTimestamp = now;
+		
+		setVelocities(pathFollower.getLeftSpeed(), pathFollower.getRightSpeed(), dt);
+	}
+	
+	// Private. Sets the velocity setpoints (in/s, robot frame) with the characterized feed forward.
+	// dt is the time elapsed since the last setpoints, so we know the acceleration we are asking for
+	private void setVelocities(double leftSpeed, double rightSpeed, double dt)
+	{
+		double leftAcceleration = dt > 0 ? (leftSpeed - lastLeftSpeed) / dt : 0;
+		double rightAcceleration = dt > 0 ? (rightSpeed - lastRightSpeed) / dt : 0;
+		
+		lastLeftSpeed = leftSpeed;
+		lastRightSpeed = rightSpeed;
+		
+		double batteryVolts = RobotController.getBatteryVoltage();
+		if (batteryVolts <= 0) { // e.g. simulation
+			batteryVolts = NOMINAL_BATTERY_VOLTS;
+		}
+		
+		double leftFeedforward = feedforwardGains.calculate(leftSpeed, leftAcceleration) / batteryVolts;
+		double rightFeedforward = feedforwardGains.calculate(rightSpeed, rightAcceleration) / batteryVolts;
+		
+		// account for fact that front of robot is back from sensor's point of view
+		masterLeft.set(ControlMode.Velocity, -convertInchesPerSecondToTicksPer100Ms(leftSpeed), DemandType.ArbitraryFeedForward, -leftFeedforward);
+		masterRight.set(ControlMode.Velocity, -convertInchesPerSecondToTicksPer100Ms(rightSpeed), DemandType.ArbitraryFeedForward, -rightFeedforward);
+	}
+	
+	// this method needs to be paired with tripleCheckCharacterize()
+	// the robot needs about 15 feet of free space in front of it (it comes back to where it started)
+	public void characterize()
+	{
+		stop(); // in case we were still doing something
+		
+		Telemetry.log("Characterizing drivetrain");
+		characterizer.clear();
+		characterizationStartTime = Timer.getFPGATimestamp();
+		characterizationPhase = 0;
+		characterizationVolts = 0;
+		
+		isCharacterizing = true;
+	}
+	
+	// this method is called once per loop: it records a sample, applies the next voltage
+	// and fits and saves the feed forward gains once all the phases are done
+	public boolean tripleCheckCharacterize()
+	{
+		if (isCharacterizing) {
+			double now = Timer.getFPGATimestamp();
+			
+			// the velocity reported this loop results from the voltage applied in the last loop
+			if (characterizationPhase % 2 == 0) { // not a pause
+				double velocity = -(convertTicksPer100MsToInchesPerSecond(masterLeftSnapshot.getVelocity())
+					+ convertTicksPer100MsToInchesPerSecond(masterRightSnapshot.getVelocity())) / 2; // sensors count backwards
+				
+				characterizer.addSample(now, characterizationVolts, velocity);
+			}
+			
+			// finds the phase we are in and the voltage to apply
+			double t = now - characterizationStartTime;
+			int phase = 0;
+			
+			while (phase < CHARACTERIZATION_PHASE_SECONDS.length && t >= CHARACTERIZATION_PHASE_SECONDS[phase]) {
+				t -= CHARACTERIZATION_PHASE_SECONDS[phase];
+				phase++;
+			}
+			
+			if (phase != characterizationPhase) {
+				characterizer.startPhase();
+				characterizationPhase = phase;
+			}
+			
+			switch (phase) {
+				case 0: characterizationVolts = CHARACTERIZATION_RAMP_VOLTS_PER_SECOND * t; break;
+				case 2: characterizationVolts = -CHARACTERIZATION_RAMP_VOLTS_PER_SECOND * t; break;
+				case 4: characterizationVolts = CHARACTERIZATION_STEP_VOLTS; break;
+				case 6: characterizationVolts = -CHARACTERIZATION_STEP_VOLTS; break;
+				default: characterizationVolts = 0; break; // pauses
+			}
+			
+			if (phase < CHARACTERIZATION_PHASE_SECONDS.length) {
+				double batteryVolts = RobotController.getBatteryVoltage();
+				double output = batteryVolts > 0 ? characterizationVolts / batteryVolts : 0;
+				
+				// account for fact that front of robot is back from sensor's point of view
+				masterLeft.set(ControlMode.PercentOutput, -output);
+				masterRight.set(ControlMode.PercentOutput, -output);
+			} else {
+				isCharacterizing = false;
+			}
+			
+			if (!isCharacterizing) {
+				Telemetry.log("Characterization done (" + characterizer.size() + " samples).");
+				stop();
+				
+				FeedforwardGains gains = characterizer.fit();
+				
+				if (gains != null) {
+					Telemetry.log("Drivetrain feed forward: " + gains);
+					feedforwardGains = gains; // used from now on
+					
+					try {
+						gains.save(new File(Filesystem.getDeployDirectory(), CHARACTERIZATION_FILE));
+					} catch (IOException e) {
+						Telemetry.log("WARNING: cannot save the drivetrain feed forward: " + e.getMessage());
+					}
+				} else {
+					Telemetry.log("WARNING: not enough data to characterize the drivetrain.");
+				}
+			}
+		}
+		return isCharacterizing;
+	}
+	
+	public FeedforwardGains getFeedforwardGains() {
+		return feedforwardGains;
+	}
+	
+	public boolean tripleCheckFollowPath() {
+		if (isFollowingPath) {
+			if (pathFollower.isDone()) { // we do not settle as we are expected to go on with something else
+				isFollowingPath = false;
+			}
+			
+			if (!isFollowingPath) {
+				Telemetry.log("You have reached the target (following path).");
+				stop();
+			}
+		}
+		return isFollowingPath;
+	}
+	
+	private double convertInchesPerSecondToTicksPer100Ms(double inchesPerSecond)
+	{
+		return inchesPerSecond / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION / 10;
+	}
+	
+	private double convertTicksPer100MsToInchesPerSecond(double ticksPer100Ms)
+	{
+		return ticksPer100Ms * 10 / TICKS_PER_REVOLUTION * PERIMETER_WHEEL_INCHES;
+	}
+	
 	private double arclength(int angle) // returns the inches needed to be moved
 	// to turn the specified angle
 	{
@@ -462,70 +997,87 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 
 	// this method needs to be paired with checkMoveDistance()
 	public void moveDistanceAlongArc(int angle) {
-		stop(); // in case we were still doing something
+		beginMove(); // stops and resets the encoders unless the previous move is blending into this one
 		
 		double dist = arclength(angle);
 		double ldist, rdist;
 		
 		ldist = dist;
 		rdist = -dist;
+		commandedHeading += angle; // a move taking over will keep the new heading
 		
-		resetEncoders();
-		setPIDParameters();
+		selectProfileSlot(ARC_SLOT);
 		
-		rtac = rdist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
-		ltac = ldist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
-		System.out.println("rtac, ltac: " + rtac + ", " + ltac);
-		masterRight.set(ControlMode.Position, -rtac);
-		masterLeft.set(ControlMode.Position, -ltac);
+		// account for fact that front of robot is back from sensor's point of view (the targets follow the previous ones when blending)
+		rtac -= rdist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		ltac -= ldist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		Telemetry.log("rtac, ltac: " + rtac + ", " + ltac);
+		masterRight.set(ControlMode.Position, rtac);
+		masterLeft.set(ControlMode.Position, ltac);
 		
 		isMoving = true;
-		onTargetCountMoving = 0;
+		moveSettleDetector.reset();
 		isReallyStalled = false;
-		stalledCount = 0;
+		resetStallDetection();
+	}
+	
+	// this method needs to be paired with checkMoveDistance()
+	// the center of the robot follows an arc of the given radius (in inches, negative to drive backwards)
+	// until the heading has changed by the given angle (in degrees, positive to the right)
+	// so a turn and the move that follows can be combined into a single motion
+	public void moveDistanceAlongArc(double radius, double angle)
+	{
+		moveDistanceAlongArc(radius, angle, MOTION_MAGIC_CRUISE_VELOCITY, MOTION_MAGIC_ACCELERATION);
+	}
+	
+	// the cruise velocity (in ticks per 100 ms) and acceleration (in ticks per 100 ms per second) are those of the outer side
+	public void moveDistanceAlongArc(double radius, double angle, int cruiseVelocity, int acceleration)
+	{
+		beginMove(); // stops and resets the encoders unless the previous move is blending into this one
+		
+		double dist = radius * Math.abs(Math.toRadians(angle)); // traveled by the center of the robot
+		double ldist = dist + Math.toRadians(angle) * RADIUS_DRIVEVETRAIN_INCHES; // the outer side travels more
+		double rdist = dist - Math.toRadians(angle) * RADIUS_DRIVEVETRAIN_INCHES;
+		commandedHeading += angle; // a move taking over will keep the new heading
+		
+		// each side runs its own profile, scaled so both sides start and end together (and therefore stay on the arc)
+		double outerDist = Math.max(Math.abs(ldist), Math.abs(rdist));
+		double lratio = outerDist > 0 ? Math.abs(ldist) / outerDist : 1;
+		double rratio = outerDist > 0 ? Math.abs(rdist) / outerDist : 1;
+		
+		selectProfileSlot(MOTION_MAGIC_SLOT);
+		setMotionMagicParameters((int) Math.max(1, cruiseVelocity * lratio), (int) Math.max(1, acceleration * lratio),
+			(int) Math.max(1, cruiseVelocity * rratio), (int) Math.max(1, acceleration * rratio));
+		
+		// account for fact that front of robot is back from sensor's point of view (the targets follow the previous ones when blending)
+		rtac -= rdist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		ltac -= ldist / PERIMETER_WHEEL_INCHES * TICKS_PER_REVOLUTION;
+		
+		Telemetry.log("rtac, ltac (arc): " + rtac + ", " + ltac);
+		masterRight.set(ControlMode.MotionMagic, rtac);
+		masterLeft.set(ControlMode.MotionMagic, ltac);
+		
+		isMoving = true;
+		isUsingMotionMagic = true;
+		moveSettleDetector.reset();
+		isReallyStalled = false;
+		resetStallDetection();
 	}
 	
 	// return if drivetrain might be stalled
 	public boolean tripleCheckIfStalled() {
-		if (isMoving || isTurning) {
-			
-			double rvelocity = getRightEncoderVelocity();
-			double lvelocity = getLeftEncoderVelocity();
-			
-			boolean isStalled = (Math.abs(rvelocity) < TICK_PER_100MS_THRESH && Math.abs(lvelocity) < TICK_PER_100MS_THRESH);
-			
-			if (isStalled) { // if we are stalled in this iteration 
-				stalledCount++; // we increase the counter
-			} else { // if we are not stalled in this iteration
-				if (stalledCount > 0) { // even though we were stalled at least once during a previous iteration
-					stalledCount = 0; // we reset the counter as we are not stalled anymore
-					System.out.println("Triple-check failed (detecting stall).");
-				} else {
-					// we are definitely not stalled
-					
-					//System.out.println("moving velocity left: " + lvelocity);
-					//System.out.println("moving velocity right: " + rvelocity);
-				}
-			}
-			
-			if (isMoving && stalledCount > MOVE_STALLED_MINIMUM_COUNT) { // if we have met the minimum
-				isReallyStalled = true;
-			}
+		if (isMoving || isTurning || isMovingUsingCamera || isTurningUsingCamera) {
 			
-			if (isTurning && stalledCount > TURN_STALLED_MINIMUM_COUNT) { // if we have met the minimum
-				isReallyStalled = true;
-			}
-
-			if (isMovingUsingCamera && stalledCount > MOVE_USING_CAMERA_STALLED_MINIMUM_COUNT) { // if we have met the minimum
-				isReallyStalled = true;
-			}
+			// both sides need to be stalled (the snapshots were captured at the beginning of the loop)
+			boolean isLeftStalled = leftStallDetector.update(masterLeftSnapshot);
+			boolean isRightStalled = rightStallDetector.update(masterRightSnapshot);
 			
-			if (isTurningUsingCamera && stalledCount > TURN_USING_CAMERA_STALLED_MINIMUM_COUNT) { // if we have met the minimum
+			if (isLeftStalled && isRightStalled) {
 				isReallyStalled = true;
 			}
 			
 			if (isReallyStalled) {
-				System.out.println("WARNING: Stall detected!");
+				Telemetry.log("WARNING: Stall detected!");
 				stop(); // WE STOP IF A STALL IS DETECTED				 
 			}
 		}
@@ -533,27 +1085,41 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		return isReallyStalled;
 	}
 	
+	private void resetStallDetection() {
+		leftStallDetector.reset();
+		rightStallDetector.reset();
+	}
+	
 	public void stop() {
-		turnPidController.disable(); // exits PID loop
-		turnUsingCameraPidController.disable(); // exits PID loop
-		moveUsingCameraPidController.disable(); // exits PID loop
+		streamer.stop(); // stops streaming points (if we were)
+		
+		synchronized (controlLock) { // once we have the lock the control loop cannot be writing an output
+			activeController = CONTROLLER_NONE; // exits PID loop
+		}
 		 
 		masterLeft.set(ControlMode.PercentOutput, 0);
 		masterRight.set(ControlMode.PercentOutput, 0);
 		
 		isMoving = false;
+		isUsingMotionMagic = false;
+		isFollowingTrajectory = false;
+		isFollowingPath = false;
 		isTurning = false;
 		isMovingUsingCamera = false;
 		isTurningUsingCamera = false;
+		isTurningUsingCameraAndGyro = false;
+		isCharacterizing = false;
+		isVelocityDriving = false;
+		isBlendedEnd = false;
+		isBlending = false;
 		
 		setNominalAndPeakOutputs(MAX_PCT_OUTPUT); // we undo what me might have changed
 	}
 	
+	// loads the gains and closed loop peak outputs of all the slots
+	// (this only reaches the motor controllers the first time or when something changed)
 	public void setPIDParameters()
 	{
-		masterRight.configAllowableClosedloopError(SLOT_0, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
-		masterLeft.configAllowableClosedloopError(SLOT_0, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
-		
 		// P is the proportional gain. It modifies the closed-loop output by a proportion (the gain value)
 		// of the closed-loop error.
 		// P gain is specified in output unit per error unit.
@@ -573,37 +1139,88 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		// If your mechanism accelerates too abruptly, Derivative Gain can be used to smooth the motion.
 		// Typically start with 10x to 100x of your current Proportional Gain.
 		
-		masterRight.config_kP(SLOT_0, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
-		masterRight.config_kI(SLOT_0, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
-		masterRight.config_kD(SLOT_0, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);
-		masterRight.config_kF(SLOT_0, 0, TALON_TIMEOUT_MS);
+		// F is the feed forward gain. It adds to the closed-loop output a proportion of the target velocity
+		// so the P term only has to correct the error (only the motion magic slot uses it).
+		
+		setSlotParameters(MOVE_SLOT, MOVE_PROPORTIONAL_GAIN, MOVE_INTEGRAL_GAIN, MOVE_DERIVATIVE_GAIN, 0, REDUCED_PCT_OUTPUT);
+		setSlotParameters(MOVE_HIGH_SPEED_SLOT, MOVE_PROPORTIONAL_GAIN, MOVE_INTEGRAL_GAIN, MOVE_DERIVATIVE_GAIN, 0, HIGH_PCT_OUTPUT);
+		setSlotParameters(ARC_SLOT, ARC_PROPORTIONAL_GAIN, ARC_INTEGRAL_GAIN, ARC_DERIVATIVE_GAIN, 0, MAX_PCT_OUTPUT);
+		setSlotParameters(MOTION_MAGIC_SLOT, MOTION_MAGIC_PROPORTIONAL_GAIN, MOTION_MAGIC_INTEGRAL_GAIN, MOTION_MAGIC_DERIVATIVE_GAIN, MOTION_MAGIC_FEED_FORWARD_GAIN, MAX_PCT_OUTPUT);
 		
-		masterLeft.config_kP(SLOT_0, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
-		masterLeft.config_kI(SLOT_0, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
-		masterLeft.config_kD(SLOT_0, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);	
-		masterLeft.config_kF(SLOT_0, 0, TALON_TIMEOUT_MS);
+		setMotionMagicParameters(MOTION_MAGIC_CRUISE_VELOCITY, MOTION_MAGIC_ACCELERATION);
+	}
+	
+	private void setSlotParameters(int slot, double p, double i, double d, double f, double closedLoopPeakOutput)
+	{
+		masterRightConfig.configAllowableClosedloopError(slot, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
+		masterLeftConfig.configAllowableClosedloopError(slot, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
+		
+		masterRightConfig.config_kP(slot, p, TALON_TIMEOUT_MS);
+		masterRightConfig.config_kI(slot, i, TALON_TIMEOUT_MS);
+		masterRightConfig.config_kD(slot, d, TALON_TIMEOUT_MS);
+		masterRightConfig.config_kF(slot, f, TALON_TIMEOUT_MS);
+		
+		masterLeftConfig.config_kP(slot, p, TALON_TIMEOUT_MS);
+		masterLeftConfig.config_kI(slot, i, TALON_TIMEOUT_MS);
+		masterLeftConfig.config_kD(slot, d, TALON_TIMEOUT_MS);
+		masterLeftConfig.config_kF(slot, f, TALON_TIMEOUT_MS);
+		
+		// unlike the peak outputs this only applies in closed loop, so it does not need to be undone afterwards
+		masterRightConfig.configClosedLoopPeakOutput(slot, closedLoopPeakOutput, TALON_TIMEOUT_MS);
+		masterLeftConfig.configClosedLoopPeakOutput(slot, closedLoopPeakOutput, TALON_TIMEOUT_MS);
+	}
+	
+	// the motion magic parameters are not per slot
+	private void setMotionMagicParameters(int cruiseVelocity, int acceleration)
+	{
+		setMotionMagicParameters(cruiseVelocity, acceleration, cruiseVelocity, acceleration);
+	}
+	
+	// arcs need different parameters on each side
+	private void setMotionMagicParameters(int leftCruiseVelocity, int leftAcceleration, int rightCruiseVelocity, int rightAcceleration)
+	{
+		masterRightConfig.configMotionCruiseVelocity(rightCruiseVelocity, TALON_TIMEOUT_MS);
+		masterRightConfig.configMotionAcceleration(rightAcceleration, TALON_TIMEOUT_MS);
+		masterLeftConfig.configMotionCruiseVelocity(leftCruiseVelocity, TALON_TIMEOUT_MS);
+		masterLeftConfig.configMotionAcceleration(leftAcceleration, TALON_TIMEOUT_MS);
+	}
+	
+	private void selectProfileSlot(int slot)
+	{
+		masterRight.selectProfileSlot(slot, PRIMARY_PID_LOOP);
+		masterLeft.selectProfileSlot(slot, PRIMARY_PID_LOOP);
 	}
 	
 	// NOTE THAT THIS METHOD WILL IMPACT BOTH OPEN AND CLOSED LOOP MODES
 	public void setNominalAndPeakOutputs(double peakOutput)
 	{
-		masterLeft.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		masterLeft.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
-		masterRight.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		masterRight.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		masterLeftConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		masterLeftConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		masterRightConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		masterRightConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
 		
-		masterRight.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		masterLeft.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		masterRight.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
-		masterLeft.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
+		masterRightConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		masterLeftConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		masterRightConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
+		masterLeftConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
 	}
 
 	public void joystickControl(Joystick joyLeft, Joystick joyRight, boolean held) // sets talons to
 	// joystick control
 	{
-		if (!isMoving && !isTurning && !isMovingUsingCamera && !isTurningUsingCamera) // if we are already doing a move or turn we don't take over
+		if (isBlending) { // the last move handed off but no move took over, so we stop it before driving
+			stop();
+		}
+		
+		if (!isMoving && !isTurning && !isMovingUsingCamera && !isTurningUsingCamera && !isFollowingTrajectory && !isFollowingPath && !isCharacterizing) // if we are already doing a move or turn we don't take over
 		{
-			if(!held)
+			if (isVelocityDriveEnabled)
+			{
+				double scale = held ? 1.0 : .80;
+				
+				velocityArcadeDrive(-joyRight.getX() * scale, joyLeft.getY() * scale); // same inputs as below
+			}
+			else if(!held)
 			{
 				//masterRight.set(ControlMode.PercentOutput, joyRight.getY() * .75);
 				//masterLeft.set(ControlMode.PercentOutput, joyLeft.getY() * .75);
@@ -621,37 +1238,142 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 				
 				differentialDrive.arcadeDrive(-joyRight.getX(), joyLeft.getY()); // right needs to be reversed
 			}
+			
+			if (!isVelocityDriveEnabled) {
+				isVelocityDriving = false;
+			}
 		}
+	}
+	
+	// Private. Does what DifferentialDrive.arcadeDrive() does (squared inputs), except that the outputs it would set
+	// are scaled to velocities, so the robot goes as fast as the driver asks regardless of the battery or the floor.
+	private void velocityArcadeDrive(double xSpeed, double zRotation)
+	{
+		double now = Timer.getFPGATimestamp();
+		
+		if (!isVelocityDriving || now - lastVelocityDriveTimestamp > VELOCITY_DRIVE_MAX_DT_SECONDS) {
+			selectProfileSlot(VELOCITY_SLOT); // a move might have selected another slot
+			lastLeftSpeed = 0;
+			lastRightSpeed = 0;
+			lastVelocityDriveTimestamp = now;
+			isVelocityDriving = true;
+		}
+		
+		double dt = now - lastVelocityDriveTimestamp;
+		lastVelocityDriveTimestamp = now;
+		
+		xSpeed = applyDeadband(Math.max(-1, Math.min(1, xSpeed)));
+		zRotation = applyDeadband(Math.max(-1, Math.min(1, zRotation)));
+		
+		xSpeed = Math.copySign(xSpeed * xSpeed, xSpeed);
+		zRotation = Math.copySign(zRotation * zRotation, zRotation);
+		
+		double maxInput = Math.copySign(Math.max(Math.abs(xSpeed), Math.abs(zRotation)), xSpeed);
+		double leftOutput, rightOutput;
+		
+		if (xSpeed >= 0) {
+			if (zRotation >= 0) {
+				leftOutput = maxInput;
+				rightOutput = xSpeed - zRotation;
+			} else {
+				leftOutput = xSpeed + zRotation;
+				rightOutput = maxInput;
+			}
+		} else {
+			if (zRotation >= 0) {
+				leftOutput = xSpeed + zRotation;
+				rightOutput = maxInput;
+			} else {
+				leftOutput = maxInput;
+				rightOutput = xSpeed - zRotation;
+			}
+		}
+		
+		leftOutput = Math.max(-1, Math.min(1, leftOutput));
+		rightOutput = -Math.max(-1, Math.min(1, rightOutput)); // DifferentialDrive reverses the right side
+		
+		// a negative output moves the robot forward (front of robot is back from sensor's point of view)
+		double leftSpeed = limitAcceleration(-leftOutput * VELOCITY_DRIVE_MAX_INCHES_PER_SECOND, lastLeftSpeed, dt);
+		double rightSpeed = limitAcceleration(-rightOutput * VELOCITY_DRIVE_MAX_INCHES_PER_SECOND, lastRightSpeed, dt);
+		
+		setVelocities(leftSpeed, rightSpeed, dt);
+	}
+	
+	private double applyDeadband(double value)
+	{
+		if (Math.abs(value) > JOYSTICK_DEADBAND) {
+			return (value - Math.copySign(JOYSTICK_DEADBAND, value)) / (1 - JOYSTICK_DEADBAND);
+		}
+		return 0;
+	}
+	
+	private double limitAcceleration(double speed, double lastSpeed, double dt)
+	{
+		double maxChange = VELOCITY_DRIVE_MAX_ACCELERATION_INCHES_PER_SECOND_SQUARED * dt;
+		return Math.max(lastSpeed - maxChange, Math.min(lastSpeed + maxChange, speed));
+	}
+	
+	// toggles between velocity and percent output control of the joysticks
+	public void setVelocityDriveEnabled(boolean isVelocityDriveEnabled_in)
+	{
+		isVelocityDriveEnabled = isVelocityDriveEnabled_in;
+		Telemetry.log("Velocity drive " + (isVelocityDriveEnabled ? "enabled" : "disabled"));
+	}
+	
+	public boolean isVelocityDriveEnabled() {
+		return isVelocityDriveEnabled;
 	}	
 	
 	public int getRightEncoderPosition() {
-		return (int) (masterRight.getSelectedSensorPosition(PRIMARY_PID_LOOP));
+		return masterRightSnapshot.getPosition();
 	}
 
 	public int getLeftEncoderPosition() {
-		return (int) (masterLeft.getSelectedSensorPosition(PRIMARY_PID_LOOP));
+		return masterLeftSnapshot.getPosition();
 	}
 
 	public int getRightPosition() {
-		return (int) (masterRight.getSelectedSensorPosition(PRIMARY_PID_LOOP)*PERIMETER_WHEEL_INCHES/TICKS_PER_REVOLUTION);
+		return (int) (masterRightSnapshot.getPosition()*PERIMETER_WHEEL_INCHES/TICKS_PER_REVOLUTION);
 	}
 
 	public int getLeftPosition() {
-		return (int) (masterLeft.getSelectedSensorPosition(PRIMARY_PID_LOOP)*PERIMETER_WHEEL_INCHES/TICKS_PER_REVOLUTION);
+		return (int) (masterLeftSnapshot.getPosition()*PERIMETER_WHEEL_INCHES/TICKS_PER_REVOLUTION);
 	}
 	
 	public int getRightEncoderVelocity() {
-		return (int) (masterRight.getSelectedSensorVelocity(PRIMARY_PID_LOOP));
+		return masterRightSnapshot.getVelocity();
 	}
 
 	public int getLeftEncoderVelocity() {
-		return (int) (masterLeft.getSelectedSensorVelocity(PRIMARY_PID_LOOP));
+		return masterLeftSnapshot.getVelocity();
 	}
 	
 	public boolean isMoving() {
 		return isMoving;
 	}
 
+	public boolean isFollowingPath() {
+		return isFollowingPath;
+	}
+	
+	public boolean isFollowingTrajectory() {
+		return isFollowingTrajectory;
+	}
+	
+	// returns the number of times the motor controllers ran out of trajectory points
+	public int getMotionProfileUnderrunCount() {
+		return streamer.getUnderrunCount();
+	}
+	
+	// returns where we are on the field (this never blocks)
+	public Pose getPose() {
+		return odometry.getPose();
+	}
+	
+	public Odometry getOdometry() {
+		return odometry;
+	}
+	
 	public boolean isMovingUsingCamera() {
 		return isMovingUsingCamera;
 	}
@@ -672,8 +1394,7 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	@Override
 	public void pidWrite(double output) {
 		
-		// calling disable() on controller will force a call to pidWrite with zero output
-		// which we need to handle by not doing anything that could have a side effect 
+		// within tolerance we output nothing, otherwise at least what is needed to overcome friction
 		if (output != 0 && Math.abs(turnPidController.getError()) < DEGREE_THRESHOLD)
 		{
 			output = 0;
@@ -689,8 +1410,7 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	@Override
 	public void pidWrite2(double output) {
 
-		// calling disable() on controller will force a call to pidWrite with zero output
-		// which we need to handle by not doing anything that could have a side effect 
+		// within tolerance we output nothing, otherwise at least what is needed to overcome friction
 		if (output != 0 && Math.abs(turnUsingCameraPidController.getError()) < DEGREE_THRESHOLD)
 		{
 			output = 0;
@@ -706,8 +1426,7 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 	@Override
 	public void pidWrite3(double output) {
 
-		// calling disable() on controller will force a call to pidWrite with zero output
-		// which we need to handle by not doing anything that could have a side effect 
+		// within tolerance we output nothing, otherwise at least what is needed to overcome friction
 		if (output != 0 && Math.abs(moveUsingCameraPidController.getError()) < DISTANCE_THRESHOLD_INCHES)
 		{
 			output = 0;
@@ -720,12 +1439,93 @@ public class Drivetrain extends Subsystem implements PIDOutput, PIDOutput2, PIDO
 		masterLeft.set(ControlMode.PercentOutput, -output);		
 	}
 	
+	// Private. Adds the heading correction to the position loops of a straight move (same signs as pidWrite())
+	private void writeHeadingCorrection(double correction) {
+		ControlMode mode = isUsingMotionMagic ? ControlMode.MotionMagic : ControlMode.Position;
+		
+		masterRight.set(mode, rtac, DemandType.ArbitraryFeedForward, +correction);
+		masterLeft.set(mode, ltac, DemandType.ArbitraryFeedForward, -correction);
+	}
+	
+	// resets the gyro to zero (the pose is not affected)
+	public void resetGyro() {
+		odometry.resetGyro(); // so the odometry never mixes readings from before and after
+	}
+	
+	// runs the active PID controller (called by the control notifier)
+	// the sensor is read once and the output written once, nothing is done while no controller is active
+	private void runControlLoop() {
+		if (activeController == CONTROLLER_NONE) {
+			return;
+		}
+		
+		synchronized (controlLock) {
+			switch (activeController) { // read again as stop() might have been called in the meantime
+				case CONTROLLER_TURN:
+					pidWrite(turnPidController.calculate(gyro.getAngle()));
+					break;
+					
+				case CONTROLLER_TURN_USING_CAMERA:
+					pidWrite2(turnUsingCameraPidController.calculate(camera.pidGet()));
+					break;
+					
+				case CONTROLLER_MOVE_USING_CAMERA:
+					pidWrite3(moveUsingCameraPidController.calculate(getCameraDistanceCompensatedForLatency()));
+					break;
+					
+				case CONTROLLER_HOLD_HEADING:
+					writeHeadingCorrection(headingHoldPidController.calculate(gyro.getAngle()));
+					break;
+					
+				default:
+					break;
+			}
+		}
+	}
+	
+	// Private. Returns the camera distance (see pidGet2()) minus how far we have moved since the frame was captured
+	private double getCameraDistanceCompensatedForLatency() {
+		double distance = camera.pidGet2(); // negative while the target is ahead
+		
+		if (distance != 0) { // we have a target we can move to
+			SensorHistory history = odometry.getHistory();
+			long captureTimestamp = camera.getCaptureTimestamp();
+			
+			double leftThen = history.get(captureTimestamp, Odometry.HISTORY_LEFT_DISTANCE);
+			double rightThen = history.get(captureTimestamp, Odometry.HISTORY_RIGHT_DISTANCE);
+			
+			if (!Double.isNaN(leftThen) && !Double.isNaN(rightThen)) { // the frame might be older than the history
+				double moved = (history.getNewest(Odometry.HISTORY_LEFT_DISTANCE) - leftThen
+					+ history.getNewest(Odometry.HISTORY_RIGHT_DISTANCE) - rightThen) / 2;
+				
+				distance = Math.min(distance + moved, 0); // we cannot be past the target
+			}
+		}
+		return distance;
+	}
+	
+	// reads the motor controllers once for the whole loop
+	private void captureSnapshots() {
+		masterLeftSnapshot = MotorControllerSnapshot.capture(masterLeft, PRIMARY_PID_LOOP);
+		masterRightSnapshot = MotorControllerSnapshot.capture(masterRight, PRIMARY_PID_LOOP);
+	}
+	
+	public MotorControllerSnapshot getLeftSnapshot() {
+		return masterLeftSnapshot;
+	}
+	
+	public MotorControllerSnapshot getRightSnapshot() {
+		return masterRightSnapshot;
+	}
+	
 	// MAKE SURE THAT YOU ARE NOT IN A CLOSED LOOP CONTROL MODE BEFORE CALLING THIS METHOD.
 	// OTHERWISE THIS IS EQUIVALENT TO MOVING TO THE DISTANCE TO THE CURRENT ZERO IN REVERSE! 
 	public void resetEncoders() {
 		masterRight.set(ControlMode.PercentOutput, 0); // we switch to open loop to be safe.
 		masterLeft.set(ControlMode.PercentOutput, 0);			
 		
+		odometry.onEncodersReset(); // the pose is not affected (it needs to know before the first side is reset)
+		
 		masterRight.setSelectedSensorPosition(0, PRIMARY_PID_LOOP, TALON_TIMEOUT_MS);
 		masterLeft.setSelectedSensorPosition(0, PRIMARY_PID_LOOP, TALON_TIMEOUT_MS);
 	}	
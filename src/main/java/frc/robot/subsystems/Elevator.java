@@ -1,6 +1,7 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
@@ -13,6 +14,7 @@ import com.ctre.phoenix.motorcontrol.ControlMode;
 
 import frc.robot.interfaces.*;
 import frc.robot.Robot;
+import frc.robot.util.*;
 
 
 public class Elevator extends Subsystem implements IElevator {
@@ -40,7 +42,9 @@ public class Elevator extends Subsystem implements IElevator {
 	// move settings
 	static final int PRIMARY_PID_LOOP = 0;
 	
-	static final int SLOT_0 = 0;
+	// each kind of move has its own slot on the motor controller (all loaded once in the constructor)
+	static final int MOVE_SLOT = 0;
+	static final int HOMING_SLOT = 1;
 	
 	static final double REDUCED_PCT_OUTPUT = 0.5;
 	
@@ -48,21 +52,37 @@ public class Elevator extends Subsystem implements IElevator {
 	static final double MOVE_INTEGRAL_GAIN = 0.0;
 	static final double MOVE_DERIVATIVE_GAIN = 0.0;
 	
+	static final double HOMING_PROPORTIONAL_GAIN = MOVE_PROPORTIONAL_GAIN;
+	static final double HOMING_INTEGRAL_GAIN = MOVE_INTEGRAL_GAIN;
+	static final double HOMING_DERIVATIVE_GAIN = MOVE_DERIVATIVE_GAIN;
+	
 	static final int TALON_TICK_THRESH = 128;
 	static final double TICK_THRESH = 512;	
 	
-	private final static int MOVE_ON_TARGET_MINIMUM_COUNT = 10; // number of times/iterations we need to be on target to really be on target
+	// stall detection settings (the motor is driven and draws current but the mechanism does not move)
+	static final double STALL_MIN_PCT_OUTPUT = 0.2;
+	static final double STALL_MAX_TICKS_PER_100MS = 64; // about a tenth of a rotation per second
+	static final double STALL_MIN_CURRENT_AMPS = 20; // TODO measure
+	
+	static final double TICK_PER_100MS_THRESH = 64; // about a tenth of a rotation per second
+	
+	private final static double MOVE_SETTLE_TIME_SECONDS = 0.1; // how long we need to be on target (and almost still) to really be on target (about five loops)
 
 	
 	// variables
 	boolean isHomingPart1, isHomingPart2, isMoving, isMovingUp;
 	
 	WPI_TalonSRX elevator;
+	MotorControllerConfigCache elevatorConfig; // so we only reconfigure what needs to be
+	volatile MotorControllerSnapshot elevatorSnapshot; // what the motor controller reported this loop
+	double moveTimestamp; // when the current move (or homing part 2) started (in seconds, the snapshots captured before are ignored)
 	
 	double tac;
 	boolean hasBeenHomed = false;
 
-	private int onTargetCount; // counter indicating how many times/iterations we were on target 
+	SettleDetector settleDetector; // tells when we have been on target long enough
+
+	StallDetector stallDetector; // so we stop if the mechanism is stuck
 
 	Robot robot; 
 	
@@ -70,6 +90,9 @@ public class Elevator extends Subsystem implements IElevator {
 	
 	public Elevator(WPI_TalonSRX elevator_in, Robot robot_in) {
 		elevator = elevator_in;
+		elevatorConfig = new MotorControllerConfigCache(elevator);
+		stallDetector = new StallDetector(STALL_MIN_PCT_OUTPUT, STALL_MAX_TICKS_PER_100MS, STALL_MIN_CURRENT_AMPS);
+		settleDetector = new SettleDetector(TICK_THRESH, TICK_PER_100MS_THRESH, MOVE_SETTLE_TIME_SECONDS);
 		
 		robot = robot_in;
 		
@@ -113,6 +136,8 @@ public class Elevator extends Subsystem implements IElevator {
 		isHomingPart2 = false;
 		isMoving = false;
 		isMovingUp = false;
+		
+		elevatorSnapshot = MotorControllerSnapshot.capture(elevator, PRIMARY_PID_LOOP); // so the getters work before the first loop
 	}
 
 	@Override
@@ -128,12 +153,16 @@ public class Elevator extends Subsystem implements IElevator {
 	@Override
 	public void periodic() {
 		// Put code here to be run every loop
-
+		elevatorSnapshot = MotorControllerSnapshot.capture(elevator, PRIMARY_PID_LOOP);
+		
+		if (elevatorConfig.invalidateIfResetOccurred()) {
+			setPIDParameters(); // we reload the slots as moves rely on them
+		}
 	}
 
 	// returns the state of the limit switch
 	public boolean getLimitSwitchState() {
-		return elevator.getSensorCollection().isFwdLimitSwitchClosed();
+		return elevatorSnapshot.isFwdLimitSwitchClosed();
 	}
 
 	// Private. We move until we reach the limit switch (in open loop). This gives us the physical zero
@@ -158,13 +187,13 @@ public class Elevator extends Subsystem implements IElevator {
 			e.printStackTrace();
 		}*/
 		
-		setNominalAndPeakOutputs(MAX_PCT_OUTPUT);
-		setPIDParameters(); // we switch to position mode
+		selectProfileSlot(HOMING_SLOT); // the gains and peak output were loaded in the constructor
 		tac = -convertInchesToRev(VIRTUAL_HOME_OFFSET_INCHES) * TICKS_PER_REVOLUTION;
 		elevator.set(ControlMode.Position,tac); // we move to virtual zero
 		
 		isHomingPart2 = true;
-		onTargetCount = 0;
+		settleDetector.reset();
+		moveTimestamp = Timer.getFPGATimestamp();
 	}
 	
 	// homes the elevator
@@ -192,7 +221,7 @@ public class Elevator extends Subsystem implements IElevator {
 			isHomingPart1 = !getLimitSwitchState(); // we are not done until we reach the switch
 
 			if (!isHomingPart1) {
-				System.out.println("You have reached the home.");
+				Telemetry.log("You have reached the home.");
 				elevator.set(ControlMode.PercentOutput,0); // turn power off
 				
 				homePart2(); // we move on to part 2
@@ -201,7 +230,7 @@ public class Elevator extends Subsystem implements IElevator {
 			isHomingPart2 = isReallyHomingPart2();
 
 			if (!isHomingPart2) {
-				System.out.println("You have reached the virtual zero.");
+				Telemetry.log("You have reached the virtual zero.");
 
 				elevator.set(ControlMode.PercentOutput,0); // we stop AND MAKE SURE WE DO NOT MOVE WHEN SETTING POSITION
 				elevator.setSelectedSensorPosition(0, PRIMARY_PID_LOOP, TALON_TIMEOUT_MS); // we mark the virtual zero
@@ -213,25 +242,27 @@ public class Elevator extends Subsystem implements IElevator {
 		return isHoming();
 	}
 
+	// Private. Returns true if the snapshot was captured after the current move started
+	// (the periodic() method runs before the command that started the move, so the snapshot of that loop is older)
+	private boolean isSnapshotCurrent() {
+		return elevatorSnapshot.getTimestamp() >= moveTimestamp;
+	}
+
 	// Private. Checks if homing step 2 is done.
 	private boolean isReallyHomingPart2() {
-		double error = elevator.getClosedLoopError(PRIMARY_PID_LOOP);
+		if (!isSnapshotCurrent()) {
+			return true; // we will check again next loop
+		}
 		
-		boolean isOnTarget = (Math.abs(error) < TICK_THRESH);
+		double error = elevatorSnapshot.getClosedLoopError();
 		
-		if (isOnTarget) { // if we are on target in this iteration 
-			onTargetCount++; // we increase the counter
-		} else { // if we are not on target in this iteration
-			if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-				onTargetCount = 0; // we reset the counter as we are not on target anymore
-				System.out.println("Triple-check failed (elevator homing part 2).");
-			} else {
-				// we are definitely homing
-				//System.out.println("Elevator homing part 2 error: " + Math.abs(error));
-			}
+		settleDetector.update(elevatorSnapshot.getTimestamp(), error, elevatorSnapshot.getVelocity());
+		
+		if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+			Telemetry.log("Triple-check failed (elevator homing part 2).");
 		}
 		
-		if (onTargetCount > MOVE_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+		if (settleDetector.isSettled()) { // if we have been on target long enough
 			return false;
 		}
 			
@@ -240,29 +271,24 @@ public class Elevator extends Subsystem implements IElevator {
 	
 	// This method should be called to assess the progress of a move
 	public boolean tripleCheckMove() {
-		if (isMoving) {
+		tripleCheckIfStalled(); // stops the move if we are stuck
+		
+		if (isMoving && isSnapshotCurrent()) { // otherwise we will check again next loop
 			
-			double error = elevator.getClosedLoopError(PRIMARY_PID_LOOP);
+			double error = elevatorSnapshot.getClosedLoopError();
 			
-			boolean isOnTarget = (Math.abs(error) < TICK_THRESH);
+			settleDetector.update(elevatorSnapshot.getTimestamp(), error, elevatorSnapshot.getVelocity());
 			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCount++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCount = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (elevator moving).");
-				} else {
-					// we are definitely moving
-				}
+			if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+				Telemetry.log("Triple-check failed (elevator moving).");
 			}
 			
-			if (onTargetCount > MOVE_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (settleDetector.isSettled()) { // if we have been on target long enough
 				isMoving = false;
 			}
 			
 			if (!isMoving) {
-				System.out.println("You have reached the target (elevator moving).");
+				Telemetry.log("You have reached the target (elevator moving).");
 				//elevator.set(ControlMode.PercentOutput,0);
 				if (isMovingUp)	{
 					stay();
@@ -277,60 +303,66 @@ public class Elevator extends Subsystem implements IElevator {
 	public void moveUp() {
 		
 		if (hasBeenHomed) {
-			//setPIDParameters();
-			System.out.println("Moving Up");
+			selectProfileSlot(MOVE_SLOT);
+			Telemetry.log("Moving Up");
 
 			tac = -convertInchesToRev(LENGTH_OF_TRAVEL_INCHES) * TICKS_PER_REVOLUTION;
 			elevator.set(ControlMode.Position,tac);
 			
 			isMoving = true;
+			stallDetector.reset();
 			isMovingUp = true;
-			onTargetCount = 0;
+			settleDetector.reset();
+			moveTimestamp = Timer.getFPGATimestamp();
 		} else {
-			System.out.println("You have not been home, your mother must be worried sick");
+			Telemetry.log("You have not been home, your mother must be worried sick");
 		}
 	}
 
 	public void moveMidway() {
 		
 		if (hasBeenHomed) {
-			//setPIDParameters();
-			System.out.println("Moving Midway");
+			selectProfileSlot(MOVE_SLOT);
+			Telemetry.log("Moving Midway");
 
 			tac = -convertInchesToRev(LENGTH_OF_TRAVEL_INCHES / 2) * TICKS_PER_REVOLUTION;
 			elevator.set(ControlMode.Position,tac);
 			
 			isMoving = true;
+			stallDetector.reset();
 			isMovingUp = true;
-			onTargetCount = 0;
+			settleDetector.reset();
+			moveTimestamp = Timer.getFPGATimestamp();
 		} else {
-			System.out.println("You have not been home, your mother must be worried sick");
+			Telemetry.log("You have not been home, your mother must be worried sick");
 		}
 	}	
 	
 	public void moveDown() {
 		
 		if (hasBeenHomed) {
-			//setPIDParameters();
-			System.out.println("Moving Down");
+			selectProfileSlot(MOVE_SLOT);
+			Telemetry.log("Moving Down");
 
 			tac = +convertInchesToRev(0)* TICKS_PER_REVOLUTION;
 			elevator.set(ControlMode.Position,tac);
 			
 			isMoving = true;
+			stallDetector.reset();
 			isMovingUp = false;
-			onTargetCount = 0;
+			settleDetector.reset();
+			moveTimestamp = Timer.getFPGATimestamp();
 		} else {
-			System.out.println("You have not been home, your mother must be worried sick");
+			Telemetry.log("You have not been home, your mother must be worried sick");
 		}
 	}
 
 	public double getPosition() {
-		return convertRevtoInches(elevator.getSelectedSensorPosition(PRIMARY_PID_LOOP) / TICKS_PER_REVOLUTION);
+		return convertRevtoInches(elevatorSnapshot.getPosition() / TICKS_PER_REVOLUTION);
 	}
 
 	public double getEncoderPosition() {
-		return elevator.getSelectedSensorPosition(PRIMARY_PID_LOOP);
+		return elevatorSnapshot.getPosition();
 	}
 
 	public boolean isHoming() {
@@ -348,6 +380,19 @@ public class Elevator extends Subsystem implements IElevator {
 	public boolean isMoving() {
 		return isMoving;
 	}
+
+	// returns true (and stops) if the current move is stalled (this is called by tripleCheckMove())
+	public boolean tripleCheckIfStalled() {
+		if (isMoving && stallDetector.update(elevatorSnapshot)) {
+			Telemetry.log("WARNING: Stall detected (elevator moving)!");
+			stop(); // WE STOP IF A STALL IS DETECTED
+		}
+		return stallDetector.isStalled();
+	}
+	
+	public boolean isStalled() {
+		return stallDetector.isStalled();
+	}
 	
 	public boolean isUp() {
 		return getPosition() > LENGTH_OF_TRAVEL_INCHES * 2/3;
@@ -385,9 +430,8 @@ public class Elevator extends Subsystem implements IElevator {
 		setNominalAndPeakOutputs(MAX_PCT_OUTPUT); // we undo what me might have changed
 	}
 	
-	private void setPIDParameters() {		
-		elevator.configAllowableClosedloopError(SLOT_0, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
-		
+	// loads the gains and closed loop peak outputs of all the slots
+	private void setPIDParameters() {
 		// P is the proportional gain. It modifies the closed-loop output by a proportion (the gain value)
 		// of the closed-loop error.
 		// P gain is specified in output unit per error unit.
@@ -407,19 +451,32 @@ public class Elevator extends Subsystem implements IElevator {
 		// If your mechanism accelerates too abruptly, Derivative Gain can be used to smooth the motion.
 		// Typically start with 10x to 100x of your current Proportional Gain.
 		
-		elevator.config_kP(SLOT_0, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
-		elevator.config_kI(SLOT_0, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
-		elevator.config_kD(SLOT_0, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);		
-		elevator.config_kF(SLOT_0, 0, TALON_TIMEOUT_MS);
+		setSlotParameters(MOVE_SLOT, MOVE_PROPORTIONAL_GAIN, MOVE_INTEGRAL_GAIN, MOVE_DERIVATIVE_GAIN, MAX_PCT_OUTPUT);
+		setSlotParameters(HOMING_SLOT, HOMING_PROPORTIONAL_GAIN, HOMING_INTEGRAL_GAIN, HOMING_DERIVATIVE_GAIN, MAX_PCT_OUTPUT); // the move to virtual zero is done at full output
+	}
+	
+	private void setSlotParameters(int slot, double p, double i, double d, double closedLoopPeakOutput) {
+		elevatorConfig.configAllowableClosedloopError(slot, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
+		
+		elevatorConfig.config_kP(slot, p, TALON_TIMEOUT_MS);
+		elevatorConfig.config_kI(slot, i, TALON_TIMEOUT_MS);
+		elevatorConfig.config_kD(slot, d, TALON_TIMEOUT_MS);
+		elevatorConfig.config_kF(slot, 0, TALON_TIMEOUT_MS);
+		
+		elevatorConfig.configClosedLoopPeakOutput(slot, closedLoopPeakOutput, TALON_TIMEOUT_MS);
+	}
+	
+	private void selectProfileSlot(int slot) {
+		elevator.selectProfileSlot(slot, PRIMARY_PID_LOOP);
 	}
 
 	public void setNominalAndPeakOutputs(double peakOutput)
 	{
-		elevator.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		elevator.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		elevatorConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		elevatorConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
 		
-		elevator.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		elevator.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		elevatorConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		elevatorConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
 	}
 	
 	// for debug purpose only
@@ -8,11 +8,14 @@ import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
 
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 import frc.robot.interfaces.*;
 import frc.robot.Robot;
 import frc.robot.sensors.Sonar;
+import frc.robot.util.MotorControllerConfigCache;
+import frc.robot.util.SettleDetector;
 
 
 /**
@@ -38,11 +41,12 @@ public class Grasper extends Subsystem implements IGrasper{
 	static final int RELEASE_DISTANCE_INCHES = 17;
 	
 	BaseMotorController grasperLeft , grasperRight; 
+	MotorControllerConfigCache grasperLeftConfig, grasperRightConfig; // so we only reconfigure what needs to be
 	Sonar sonar;
 	
 	// shared grasp and release settings
-	private int onTargetCount; // counter indicating how many times/iterations we were on target
-	private final static int ON_TARGET_MINIMUM_COUNT = 25; // number of times/iterations we need to be on target to really be on target
+	private final static double SETTLE_TIME_SECONDS = 0.3; // a few sonar readings (there is no rate to check so this is all the filtering we get)
+	SettleDetector settleDetector; // tells when we have been on target long enough
 	
 	boolean isGrasping;
 	boolean isReleasing;
@@ -54,6 +58,9 @@ public class Grasper extends Subsystem implements IGrasper{
 		
 		grasperLeft = grasperLeft_in;
 		grasperRight = grasperRight_in;
+		grasperLeftConfig = new MotorControllerConfigCache(grasperLeft);
+		grasperRightConfig = new MotorControllerConfigCache(grasperRight);
+		settleDetector = new SettleDetector(SETTLE_TIME_SECONDS);
 		
 		robot = robot_in;
 		
@@ -100,7 +107,8 @@ public class Grasper extends Subsystem implements IGrasper{
 	@Override
 	public void periodic() {
 		// Put code here to be run every loop
-
+		grasperLeftConfig.invalidateIfResetOccurred();
+		grasperRightConfig.invalidateIfResetOccurred();
 	}
 
 	public void grasp() {
@@ -108,7 +116,7 @@ public class Grasper extends Subsystem implements IGrasper{
 		
 		isGrasping = true;
 		isReleasing = false;
-		onTargetCount = 0;
+		settleDetector.reset();
 	}
 	
 	public void release() {
@@ -116,7 +124,7 @@ public class Grasper extends Subsystem implements IGrasper{
 		
 		isReleasing = true;
 		isGrasping = false;
-		onTargetCount = 0;
+		settleDetector.reset();
 	}
 	
 	public void stop() {
@@ -129,21 +137,13 @@ public class Grasper extends Subsystem implements IGrasper{
 	public boolean tripleCheckGraspUsingSonar() {
 		if (sonar != null && isGrasping) {
 						
-			boolean isOnTarget = sonar.getRangeInInches() < GRASP_DISTANCE_INCHES;
+			settleDetector.update(Timer.getFPGATimestamp(), sonar.getRangeInInches() < GRASP_DISTANCE_INCHES);
 			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCount++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCount = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (grasping).");
-				} else {
-					// we are definitely moving
-					//System.out.println("Grasping. Sonar range: " + sonar.getRangeInInches());
-				}
+			if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+				System.out.println("Triple-check failed (grasping).");
 			}
 			
-			if (onTargetCount > ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (settleDetector.isSettled()) { // if we have been on target long enough
 				isGrasping = false;
 			}
 			
@@ -158,21 +158,13 @@ public class Grasper extends Subsystem implements IGrasper{
 	public boolean tripleCheckReleaseUsingSonar() {
 		if (sonar != null && isReleasing) {
 						
-			boolean isOnTarget = sonar.getRangeInInches() > RELEASE_DISTANCE_INCHES;
+			settleDetector.update(Timer.getFPGATimestamp(), sonar.getRangeInInches() > RELEASE_DISTANCE_INCHES);
 			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCount++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCount = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (releasing).");
-				} else {
-					// we are definitely moving
-					//System.out.println("Releasing. Sonar range: " + sonar.getRangeInInches());
-				}
+			if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+				System.out.println("Triple-check failed (releasing).");
 			}
 			
-			if (onTargetCount > ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (settleDetector.isSettled()) { // if we have been on target long enough
 				isReleasing = false;
 			}
 			
@@ -187,15 +179,15 @@ public class Grasper extends Subsystem implements IGrasper{
 	// NOTE THAT THIS METHOD WILL IMPACT BOTH OPEN AND CLOSED LOOP MODES
 	public void setNominalAndPeakOutputs(double peakOutput)
 	{
-		grasperLeft.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		grasperLeft.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
-		grasperRight.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		grasperRight.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		grasperLeftConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		grasperLeftConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		grasperRightConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		grasperRightConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
 		
-		grasperRight.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		grasperLeft.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		grasperRight.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
-		grasperLeft.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
+		grasperRightConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		grasperLeftConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		grasperRightConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
+		grasperLeftConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
 	}
 	
 	public boolean isGrasping() {
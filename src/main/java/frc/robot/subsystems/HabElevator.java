@@ -1,6 +1,7 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
@@ -13,6 +14,7 @@ import com.ctre.phoenix.motorcontrol.ControlMode;
 
 import frc.robot.interfaces.*;
 import frc.robot.Robot;
+import frc.robot.util.*;
 
 
 public class HabElevator extends Subsystem implements IHabElevator {
@@ -48,17 +50,27 @@ public class HabElevator extends Subsystem implements IHabElevator {
 	static final int TALON_TICK_THRESH = 128;
 	static final double TICK_THRESH = 512;	
 	
-	private final static int MOVE_ON_TARGET_MINIMUM_COUNT = 10; // number of times/iterations we need to be on target to really be on target
+	// stall detection settings (the motor is driven and draws current but the mechanism does not move)
+	static final double STALL_MIN_PCT_OUTPUT = 0.2;
+	static final double STALL_MAX_TICKS_PER_100MS = 64; // about a tenth of a rotation per second
+	static final double STALL_MIN_CURRENT_AMPS = 20; // TODO measure
+	
+	static final double TICK_PER_100MS_THRESH = 64; // about a tenth of a rotation per second
+	
+	private final static double MOVE_SETTLE_TIME_SECONDS = 0.1; // how long we need to be on target (and almost still) to really be on target
 
 	
 	// variables
 	boolean isMoving, isMovingUp;
 	
 	WPI_TalonSRX elevator;
+	MotorControllerConfigCache elevatorConfig; // so we only reconfigure what needs to be
 	
 	double tac;
 
-	private int onTargetCount; // counter indicating how many times/iterations we were on target 
+	SettleDetector settleDetector; // tells when we have been on target long enough
+
+	StallDetector stallDetector; // so we stop if the mechanism is stuck
 
 	Robot robot; 
 	
@@ -66,6 +78,9 @@ public class HabElevator extends Subsystem implements IHabElevator {
 	
 	public HabElevator(WPI_TalonSRX elevator_in, Robot robot_in) {
 		elevator = elevator_in;
+		elevatorConfig = new MotorControllerConfigCache(elevator);
+		stallDetector = new StallDetector(STALL_MIN_PCT_OUTPUT, STALL_MAX_TICKS_PER_100MS, STALL_MIN_CURRENT_AMPS);
+		settleDetector = new SettleDetector(TICK_THRESH, TICK_PER_100MS_THRESH, MOVE_SETTLE_TIME_SECONDS);
 		
 		robot = robot_in;
 		
@@ -124,29 +139,24 @@ public class HabElevator extends Subsystem implements IHabElevator {
 	@Override
 	public void periodic() {
 		// Put code here to be run every loop
-
+		elevatorConfig.invalidateIfResetOccurred();
 	}	
 	
 	// This method should be called to assess the progress of a move
 	public boolean tripleCheckMove() {
+		tripleCheckIfStalled(); // stops the move if we are stuck
+		
 		if (isMoving) {
 			
 			double error = elevator.getClosedLoopError(PRIMARY_PID_LOOP);
 			
-			boolean isOnTarget = (Math.abs(error) < TICK_THRESH);
+			settleDetector.update(Timer.getFPGATimestamp(), error, elevator.getSelectedSensorVelocity(PRIMARY_PID_LOOP));
 			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCount++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCount = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (elevator moving).");
-				} else {
-					// we are definitely moving
-				}
+			if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+				System.out.println("Triple-check failed (elevator moving).");
 			}
 			
-			if (onTargetCount > MOVE_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (settleDetector.isSettled()) { // if we have been on target long enough
 				isMoving = false;
 			}
 			
@@ -171,8 +181,9 @@ public class HabElevator extends Subsystem implements IHabElevator {
 		elevator.set(ControlMode.Position,tac);
 		
 		isMoving = true;
+		stallDetector.reset();
 		isMovingUp = true;
-		onTargetCount = 0;
+		settleDetector.reset();
 	}
 
 	public void moveMidway() {
@@ -183,8 +194,9 @@ public class HabElevator extends Subsystem implements IHabElevator {
 		elevator.set(ControlMode.Position,tac);
 		
 		isMoving = true;
+		stallDetector.reset();
 		isMovingUp = true;
-		onTargetCount = 0;
+		settleDetector.reset();
 	}	
 	
 	public void moveDown() {
@@ -195,8 +207,9 @@ public class HabElevator extends Subsystem implements IHabElevator {
 		elevator.set(ControlMode.Position,tac);
 		
 		isMoving = true;
+		stallDetector.reset();
 		isMovingUp = false;
-		onTargetCount = 0;
+		settleDetector.reset();
 	}
 
 	public double getPosition() {
@@ -210,6 +223,20 @@ public class HabElevator extends Subsystem implements IHabElevator {
 	public boolean isMoving() {
 		return isMoving;
 	}
+
+	// returns true (and stops) if the current move is stalled (this is called by tripleCheckMove())
+	public boolean tripleCheckIfStalled() {
+		if (isMoving && stallDetector.update(Timer.getFPGATimestamp(), elevator.getMotorOutputPercent(),
+				elevator.getSelectedSensorVelocity(PRIMARY_PID_LOOP), elevator.getOutputCurrent())) {
+			System.out.println("WARNING: Stall detected (hab elevator moving)!");
+			stop(); // WE STOP IF A STALL IS DETECTED
+		}
+		return stallDetector.isStalled();
+	}
+	
+	public boolean isStalled() {
+		return stallDetector.isStalled();
+	}
 	
 	public boolean isUp() {
 		return getPosition() > LENGTH_OF_TRAVEL_INCHES * 2/3;
@@ -244,7 +271,7 @@ public class HabElevator extends Subsystem implements IHabElevator {
 	}
 	
 	private void setPIDParameters() {		
-		elevator.configAllowableClosedloopError(SLOT_0, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
+		elevatorConfig.configAllowableClosedloopError(SLOT_0, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
 		
 		// P is the proportional gain. It modifies the closed-loop output by a proportion (the gain value)
 		// of the closed-loop error.
@@ -265,19 +292,19 @@ public class HabElevator extends Subsystem implements IHabElevator {
 		// If your mechanism accelerates too abruptly, Derivative Gain can be used to smooth the motion.
 		// Typically start with 10x to 100x of your current Proportional Gain.
 		
-		elevator.config_kP(SLOT_0, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
-		elevator.config_kI(SLOT_0, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
-		elevator.config_kD(SLOT_0, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);		
-		elevator.config_kF(SLOT_0, 0, TALON_TIMEOUT_MS);
+		elevatorConfig.config_kP(SLOT_0, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
+		elevatorConfig.config_kI(SLOT_0, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
+		elevatorConfig.config_kD(SLOT_0, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);		
+		elevatorConfig.config_kF(SLOT_0, 0, TALON_TIMEOUT_MS);
 	}
 
 	public void setNominalAndPeakOutputs(double peakOutput)
 	{
-		elevator.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		elevator.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		elevatorConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		elevatorConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
 		
-		elevator.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		elevator.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		elevatorConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		elevatorConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
 	}
 	
 	// for debug purpose only
@@ -1,6 +1,7 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
@@ -14,6 +15,7 @@ import com.ctre.phoenix.motorcontrol.ControlMode;
 import frc.robot.interfaces.*;
 //import frc.robot.Ports;
 import frc.robot.Robot;
+import frc.robot.util.*;
 
 
 public class Hinge extends Subsystem implements IHinge {
@@ -38,7 +40,9 @@ public class Hinge extends Subsystem implements IHinge {
 	// move settings
 	static final int PRIMARY_PID_LOOP = 0;
 	
-	static final int SLOT_0 = 0;
+	// each kind of move has its own slot on the motor controller (all loaded once in the constructor)
+	static final int MOVE_SLOT = 0;
+	static final int MOVE_DOWN_SLOT = 1;
 	
 	static final double REDUCED_PCT_OUTPUT = 0.5;
 	
@@ -49,24 +53,39 @@ public class Hinge extends Subsystem implements IHinge {
 	static final int TALON_TICK_THRESH = 128;
 	static final double TICK_THRESH = 4096;	
 	
-	private final static int MOVE_ON_TARGET_MINIMUM_COUNT= 10; // number of times/iterations we need to be on target to really be on target
+	// stall detection settings (the motor is driven and draws current but the mechanism does not move)
+	static final double STALL_MIN_PCT_OUTPUT = 0.2;
+	static final double STALL_MAX_TICKS_PER_100MS = 64; // about a tenth of a rotation per second
+	static final double STALL_MIN_CURRENT_AMPS = 20; // TODO measure
+	
+	static final double TICK_PER_100MS_THRESH = 64; // about a tenth of a rotation per second
+	
+	private final static double MOVE_SETTLE_TIME_SECONDS = 0.1; // how long we need to be on target (and almost still) to really be on target
 
 	
 	// variables
 	boolean isHomingPart1, isHomingPart2, isMoving, isMovingUp;
 	
 	WPI_TalonSRX hinge;
+	MotorControllerConfigCache hingeConfig; // so we only reconfigure what needs to be
+	volatile MotorControllerSnapshot hingeSnapshot; // what the motor controller reported this loop
+	double moveTimestamp; // when the current move (or homing part 2) started (in seconds, the snapshots captured before are ignored)
 	
 	double tac;
 	boolean hasBeenHomed = false;
 
-	private int onTargetCount; // counter indicating how many times/iterations we were on target
+	SettleDetector settleDetector; // tells when we have been on target long enough
+
+	StallDetector stallDetector; // so we stop if the mechanism is stuck
 
 	Robot robot; 
 	
 	
 	public Hinge(WPI_TalonSRX hinge_in, Robot robot_in) {
 		hinge = hinge_in;
+		hingeConfig = new MotorControllerConfigCache(hinge);
+		stallDetector = new StallDetector(STALL_MIN_PCT_OUTPUT, STALL_MAX_TICKS_PER_100MS, STALL_MIN_CURRENT_AMPS);
+		settleDetector = new SettleDetector(TICK_THRESH, TICK_PER_100MS_THRESH, MOVE_SETTLE_TIME_SECONDS);
 		robot = robot_in;
 		
 		// Mode of operation during Neutral output may be set by using the setNeutralMode() function.
@@ -109,6 +128,8 @@ public class Hinge extends Subsystem implements IHinge {
 		isHomingPart2 = false;
 		isMoving = false;
 		isMovingUp = false;
+		
+		hingeSnapshot = MotorControllerSnapshot.capture(hinge, PRIMARY_PID_LOOP); // so the getters work before the first loop
 	}
 
 	@Override
@@ -124,12 +145,16 @@ public class Hinge extends Subsystem implements IHinge {
 	@Override
 	public void periodic() {
 		// Put code here to be run every loop
-
+		hingeSnapshot = MotorControllerSnapshot.capture(hinge, PRIMARY_PID_LOOP);
+		
+		if (hingeConfig.invalidateIfResetOccurred()) {
+			setPIDParameters(); // we reload the slots as moves rely on them
+		}
 	}
 
 	// returns the state of the limit switch
 	public boolean getLimitSwitchState() {
-		return hinge.getSensorCollection().isRevLimitSwitchClosed();
+		return hingeSnapshot.isRevLimitSwitchClosed();
 	}
 
 	// Private. We move until we reach the limit switch (in open loop). This gives us the physical zero
@@ -147,12 +172,13 @@ public class Hinge extends Subsystem implements IHinge {
 		hinge.set(ControlMode.PercentOutput,0); // we stop AND MAKE SURE WE DO NOT MOVE WHEN SETTING POSITION
 		hinge.setSelectedSensorPosition(0, PRIMARY_PID_LOOP, TALON_TIMEOUT_MS); // we set the current position to zero
 		
-		setPIDParameters(); // we switch to position mode
+		selectProfileSlot(MOVE_SLOT); // the gains and peak output were loaded in the constructor
 		tac = +VIRTUAL_HOME_OFFSET_TICKS;
 		hinge.set(ControlMode.Position,tac); // we move to virtual zero
 		
 		isHomingPart2 = true;
-		onTargetCount = 0;
+		settleDetector.reset();
+		moveTimestamp = Timer.getFPGATimestamp();
 	}
 	
 	// homes the hinge
@@ -182,7 +208,7 @@ public class Hinge extends Subsystem implements IHinge {
 		hasBeenHomed = false; // flags that it has not been homed
 		
 		if (getLimitSwitchState()) { // there is a limit to how far we want to fake things... 						
-			System.out.println("REFUSING TO FAKE HOME WHEN YOU COULD HOME!");
+			Telemetry.log("REFUSING TO FAKE HOME WHEN YOU COULD HOME!");
 			return;
 		}
 		
@@ -201,7 +227,7 @@ public class Hinge extends Subsystem implements IHinge {
 			isHomingPart1 = !getLimitSwitchState(); // we are not done until we reach the switch
 
 			if (!isHomingPart1) {
-				System.out.println("You have reached the home.");
+				Telemetry.log("You have reached the home.");
 				hinge.set(ControlMode.PercentOutput,0); // turn power off
 				
 				homePart2(); // we move on to part 2
@@ -211,7 +237,7 @@ public class Hinge extends Subsystem implements IHinge {
 			//isHomingPart2 = false;
 
 			if (!isHomingPart2) {
-				System.out.println("You have reached the virtual zero.");
+				Telemetry.log("You have reached the virtual zero.");
 
 				hinge.set(ControlMode.PercentOutput,0); // we stop AND MAKE SURE WE DO NOT MOVE WHEN SETTING POSITION
 				hinge.setSelectedSensorPosition(0, PRIMARY_PID_LOOP, TALON_TIMEOUT_MS); // we mark the virtual zero
@@ -223,25 +249,27 @@ public class Hinge extends Subsystem implements IHinge {
 		return isHoming();
 	}
 
+	// Private. Returns true if the snapshot was captured after the current move started
+	// (the periodic() method runs before the command that started the move, so the snapshot of that loop is older)
+	private boolean isSnapshotCurrent() {
+		return hingeSnapshot.getTimestamp() >= moveTimestamp;
+	}
+
 	// Private. Checks if homing step 2 is done.
 	private boolean isReallyHomingPart2() {
-		double error = hinge.getClosedLoopError(PRIMARY_PID_LOOP);
+		if (!isSnapshotCurrent()) {
+			return true; // we will check again next loop
+		}
 		
-		boolean isOnTarget = (Math.abs(error) < TICK_THRESH);
+		double error = hingeSnapshot.getClosedLoopError();
 		
-		if (isOnTarget) { // if we are on target in this iteration 
-			onTargetCount++; // we increase the counter
-		} else { // if we are not on target in this iteration
-			if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-				onTargetCount = 0; // we reset the counter as we are not on target anymore
-				System.out.println("Triple-check failed (hinge homing part 2).");
-			} else {
-				// we are definitely homing
-				//System.out.println("Hinge homing part 2 error: " + Math.abs(error));
-			}
+		settleDetector.update(hingeSnapshot.getTimestamp(), error, hingeSnapshot.getVelocity());
+		
+		if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+			Telemetry.log("Triple-check failed (hinge homing part 2).");
 		}
 		
-		if (onTargetCount > MOVE_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+		if (settleDetector.isSettled()) { // if we have been on target long enough
 			return false;
 		}
 			
@@ -250,30 +278,25 @@ public class Hinge extends Subsystem implements IHinge {
 	
 	// This method should be called to assess the progress of a move
 	public boolean tripleCheckMove() {
-		if (isMoving) {
+		tripleCheckIfStalled(); // stops the move if we are stuck
+		
+		if (isMoving && isSnapshotCurrent()) { // otherwise we will check again next loop
 			
-			double error = hinge.getClosedLoopError(PRIMARY_PID_LOOP);
+			double error = hingeSnapshot.getClosedLoopError();
 			//System.out.println("Hinge moving error: " + Math.abs(error));
 			
-			boolean isOnTarget = (Math.abs(error) < TICK_THRESH);
+			settleDetector.update(hingeSnapshot.getTimestamp(), error, hingeSnapshot.getVelocity());
 			
-			if (isOnTarget) { // if we are on target in this iteration 
-				onTargetCount++; // we increase the counter
-			} else { // if we are not on target in this iteration
-				if (onTargetCount > 0) { // even though we were on target at least once during a previous iteration
-					onTargetCount = 0; // we reset the counter as we are not on target anymore
-					System.out.println("Triple-check failed (hinge moving).");
-				} else {
-					// we are definitely moving
-				}
+			if (settleDetector.hasJustFailed()) { // we were on target but not anymore
+				Telemetry.log("Triple-check failed (hinge moving).");
 			}
 			
-			if (onTargetCount > MOVE_ON_TARGET_MINIMUM_COUNT) { // if we have met the minimum
+			if (settleDetector.isSettled()) { // if we have been on target long enough
 				isMoving = false;
 			}
 			
 			if (!isMoving) {
-				System.out.println("You have reached the target (hinge moving).");
+				Telemetry.log("You have reached the target (hinge moving).");
 				//hinge.set(ControlMode.PercentOutput,0);
 				if (isMovingUp) {
 					stay();
@@ -288,66 +311,69 @@ public class Hinge extends Subsystem implements IHinge {
 	public void moveUp() {
 		
 		if (hasBeenHomed) {
-			//setPIDParameters();
-			System.out.println("Moving Up");
+			Telemetry.log("Moving Up");
 			
-			setNominalAndPeakOutputs(MAX_PCT_OUTPUT);
+			selectProfileSlot(MOVE_SLOT);
 
 			tac = 0;
 			hinge.set(ControlMode.Position,tac);
 			
 			isMoving = true;
+			stallDetector.reset();
 			isMovingUp = true;
-			onTargetCount = 0;
+			settleDetector.reset();
+			moveTimestamp = Timer.getFPGATimestamp();
 		} else {
-			System.out.println("You have not been home, your mother must be worried sick");
+			Telemetry.log("You have not been home, your mother must be worried sick");
 		}
 	}
 
 	public void moveMidway() {
 		
 		if (hasBeenHomed) {
-			//setPIDParameters();
-			System.out.println("Moving Midway");
+			Telemetry.log("Moving Midway");
 			
-			setNominalAndPeakOutputs(MAX_PCT_OUTPUT); // we may need to check if we were up in which case we may want to reduce output
+			selectProfileSlot(MOVE_SLOT); // we may need to check if we were up in which case we may want to reduce output
 
 			tac = ANGLE_TO_TRAVEL_TICKS / 2;
 			hinge.set(ControlMode.Position,tac);
 			
 			isMoving = true;
+			stallDetector.reset();
 			isMovingUp = true;
-			onTargetCount = 0;
+			settleDetector.reset();
+			moveTimestamp = Timer.getFPGATimestamp();
 		} else {
-			System.out.println("You have not been home, your mother must be worried sick");
+			Telemetry.log("You have not been home, your mother must be worried sick");
 		}
 	}
 	
 	public void moveDown() {
 		
 		if (hasBeenHomed) {
-			//setPIDParameters();
-			System.out.println("Moving Down");
+			Telemetry.log("Moving Down");
 			
-			setNominalAndPeakOutputs(HOMING_PCT_OUTPUT);
+			selectProfileSlot(MOVE_DOWN_SLOT); // same gains but reduced peak output
 	
 			tac = ANGLE_TO_TRAVEL_TICKS;
 			hinge.set(ControlMode.Position,tac);
 			
 			isMoving = true;
+			stallDetector.reset();
 			isMovingUp = false;
-			onTargetCount = 0;
+			settleDetector.reset();
+			moveTimestamp = Timer.getFPGATimestamp();
 		} else {
-			System.out.println("You have not been home, your mother must be worried sick");
+			Telemetry.log("You have not been home, your mother must be worried sick");
 		}
 	}
 
 	public double getPosition() {
-		return hinge.getSelectedSensorPosition(PRIMARY_PID_LOOP) * GEAR_RATIO / TICKS_PER_REVOLUTION;
+		return hingeSnapshot.getPosition() * GEAR_RATIO / TICKS_PER_REVOLUTION;
 	}
 
 	public double getEncoderPosition() {
-		return hinge.getSelectedSensorPosition(PRIMARY_PID_LOOP);
+		return hingeSnapshot.getPosition();
 	}
 
 	public boolean isHoming() {
@@ -365,6 +391,19 @@ public class Hinge extends Subsystem implements IHinge {
 	public boolean isMoving() {
 		return isMoving;
 	}
+
+	// returns true (and stops) if the current move is stalled (this is called by tripleCheckMove())
+	public boolean tripleCheckIfStalled() {
+		if (isMoving && stallDetector.update(hingeSnapshot)) {
+			Telemetry.log("WARNING: Stall detected (hinge moving)!");
+			stop(); // WE STOP IF A STALL IS DETECTED
+		}
+		return stallDetector.isStalled();
+	}
+	
+	public boolean isStalled() {
+		return stallDetector.isStalled();
+	}
 	
 	public boolean isUp() {
 		return Math.abs(getEncoderPosition()) < ANGLE_TO_TRAVEL_TICKS * 1/3;
@@ -395,9 +434,8 @@ public class Hinge extends Subsystem implements IHinge {
 		setNominalAndPeakOutputs(MAX_PCT_OUTPUT); // we undo what me might have changed
 	}	
 	
-	private void setPIDParameters() {		
-		hinge.configAllowableClosedloopError(SLOT_0, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
-		
+	// loads the gains and closed loop peak outputs of all the slots
+	private void setPIDParameters() {
 		// P is the proportional gain. It modifies the closed-loop output by a proportion (the gain value)
 		// of the closed-loop error.
 		// P gain is specified in output unit per error unit.
@@ -417,19 +455,32 @@ public class Hinge extends Subsystem implements IHinge {
 		// If your mechanism accelerates too abruptly, Derivative Gain can be used to smooth the motion.
 		// Typically start with 10x to 100x of your current Proportional Gain.
 		
-		hinge.config_kP(SLOT_0, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
-		hinge.config_kI(SLOT_0, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
-		hinge.config_kD(SLOT_0, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);
-		hinge.config_kF(SLOT_0, 0, TALON_TIMEOUT_MS);
+		setSlotParameters(MOVE_SLOT, MAX_PCT_OUTPUT);
+		setSlotParameters(MOVE_DOWN_SLOT, HOMING_PCT_OUTPUT);
+	}
+	
+	private void setSlotParameters(int slot, double closedLoopPeakOutput) {
+		hingeConfig.configAllowableClosedloopError(slot, TALON_TICK_THRESH, TALON_TIMEOUT_MS);
+		
+		hingeConfig.config_kP(slot, MOVE_PROPORTIONAL_GAIN, TALON_TIMEOUT_MS);
+		hingeConfig.config_kI(slot, MOVE_INTEGRAL_GAIN, TALON_TIMEOUT_MS);
+		hingeConfig.config_kD(slot, MOVE_DERIVATIVE_GAIN, TALON_TIMEOUT_MS);
+		hingeConfig.config_kF(slot, 0, TALON_TIMEOUT_MS);
+		
+		hingeConfig.configClosedLoopPeakOutput(slot, closedLoopPeakOutput, TALON_TIMEOUT_MS);
+	}
+	
+	private void selectProfileSlot(int slot) {
+		hinge.selectProfileSlot(slot, PRIMARY_PID_LOOP);
 	}
 
 	public void setNominalAndPeakOutputs(double peakOutput)
 	{
-		hinge.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
-		hinge.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
+		hingeConfig.configPeakOutputForward(peakOutput, TALON_TIMEOUT_MS);
+		hingeConfig.configPeakOutputReverse(-peakOutput, TALON_TIMEOUT_MS);
 		
-		hinge.configNominalOutputForward(0, TALON_TIMEOUT_MS);
-		hinge.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		hingeConfig.configNominalOutputForward(0, TALON_TIMEOUT_MS);
+		hingeConfig.configNominalOutputReverse(0, TALON_TIMEOUT_MS);
 	}
 	
 	// for debug purpose only
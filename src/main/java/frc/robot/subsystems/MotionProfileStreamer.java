@@ -0,0 +1,213 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix.motion.MotionProfileStatus;
+import com.ctre.phoenix.motion.SetValueMotionProfile;
+import com.ctre.phoenix.motion.TrajectoryPoint;
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+import frc.robot.util.*;
+
+
+/**
+ * This class streams a trajectory to the motion profile buffers of the two master motor controllers of a drivetrain.
+ *
+ * <p>A background Notifier (running twice as fast as the points are consumed) tops up the API buffer,
+ * moves points to the firmware buffer with processMotionProfileBuffer() and enables the profile once
+ * enough points are buffered. The firmware then executes each point on its own, so the main loop period
+ * plays no part in the execution of the trajectory.
+ *
+ * <p>Underruns (the firmware running out of points while a profile is enabled) are counted so they can be
+ * monitored. They should stay at zero.
+ */
+public class MotionProfileStreamer {
+
+	public static final double NOTIFIER_PERIOD_SECONDS = 0.005; // 5 ms
+
+	static final int MIN_BUFFERED_POINTS = 10; // number of points that need to be in the firmware buffer before we start
+	static final int MAX_POINTS_PUSHED_PER_RUN = 20; // we stream rather than push everything at once
+
+	// states
+	static final int STATE_IDLE = 0;
+	static final int STATE_BUFFERING = 1;
+	static final int STATE_RUNNING = 2;
+	static final int STATE_DONE = 3; // holding the last point
+
+	private final BaseMotorController left, right;
+	private final int slot;
+	private final double ticksPerInch; // negative if the sensors count backwards when the robot moves forward
+
+	private final Notifier notifier;
+
+	// preallocated so nothing is allocated by the notifier
+	private final MotionProfileStatus leftStatus = new MotionProfileStatus();
+	private final MotionProfileStatus rightStatus = new MotionProfileStatus();
+	private final TrajectoryPoint point = new TrajectoryPoint();
+
+	private Trajectory trajectory;
+	private int nextPointIndex; // index of the next point to push
+	private volatile int state = STATE_IDLE;
+
+	private volatile int underrunCount; // number of times the firmware ran out of points (since the robot started)
+	private volatile int minBufferedPointCount; // lowest number of points buffered in the firmware during the current profile
+
+
+	public MotionProfileStreamer(BaseMotorController left_in, BaseMotorController right_in, int slot_in, double ticksPerInch_in, int timeoutMs) {
+		left = left_in;
+		right = right_in;
+		slot = slot_in;
+		ticksPerInch = ticksPerInch_in;
+
+		// the motion control frame needs to be sent at least twice as fast as the points are consumed
+		left.changeMotionControlFramePeriod((int) (NOTIFIER_PERIOD_SECONDS * 1000));
+		right.changeMotionControlFramePeriod((int) (NOTIFIER_PERIOD_SECONDS * 1000));
+
+		// the duration of each point is given by the point itself
+		left.configMotionProfileTrajectoryPeriod(0, timeoutMs);
+		right.configMotionProfileTrajectoryPeriod(0, timeoutMs);
+
+		notifier = new Notifier(this::run);
+		notifier.startPeriodic(NOTIFIER_PERIOD_SECONDS);
+	}
+
+	// starts streaming the trajectory (the sensor positions are reset to zero by the first point)
+	public synchronized void start(Trajectory trajectory_in) {
+		stop();
+
+		trajectory = trajectory_in;
+		nextPointIndex = 0;
+		minBufferedPointCount = Integer.MAX_VALUE;
+
+		// the motor controllers wait (in neutral) until we enable the profile
+		left.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+		right.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+
+		left.clearMotionProfileHasUnderrun(0);
+		right.clearMotionProfileHasUnderrun(0);
+
+		fillTopBuffers();
+
+		state = STATE_BUFFERING;
+	}
+
+	// stops streaming (the caller is responsible for switching to another control mode)
+	public synchronized void stop() {
+		if (state != STATE_IDLE) { // so stopping when idle costs nothing
+			left.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+			right.set(ControlMode.MotionProfile, SetValueMotionProfile.Disable.value);
+
+			left.clearMotionProfileTrajectories();
+			right.clearMotionProfileTrajectories();
+		}
+
+		trajectory = null;
+		state = STATE_IDLE;
+	}
+
+	// returns true while the trajectory is being executed
+	public boolean isRunning() {
+		int currentState = state;
+		return currentState == STATE_BUFFERING || currentState == STATE_RUNNING;
+	}
+
+	// returns true once the last point has been reached (the motor controllers then hold it)
+	public boolean isDone() {
+		return state == STATE_DONE;
+	}
+
+	public int getUnderrunCount() {
+		return underrunCount;
+	}
+
+	public int getMinBufferedPointCount() {
+		return minBufferedPointCount;
+	}
+
+	private synchronized void run() {
+		if (state == STATE_IDLE || state == STATE_DONE) {
+			return;
+		}
+
+		left.processMotionProfileBuffer(); // moves points from the API buffer to the firmware buffer
+		right.processMotionProfileBuffer();
+
+		fillTopBuffers();
+
+		left.getMotionProfileStatus(leftStatus);
+		right.getMotionProfileStatus(rightStatus);
+
+		if (leftStatus.hasUnderrun || rightStatus.hasUnderrun) {
+			underrunCount++;
+			Telemetry.log("WARNING: Motion profile underrun!");
+
+			left.clearMotionProfileHasUnderrun(0);
+			right.clearMotionProfileHasUnderrun(0);
+		}
+
+		switch (state) {
+			case STATE_BUFFERING:
+			{
+				boolean allPushed = nextPointIndex >= trajectory.size();
+				boolean enoughBuffered = leftStatus.btmBufferCnt >= MIN_BUFFERED_POINTS && rightStatus.btmBufferCnt >= MIN_BUFFERED_POINTS;
+
+				if (enoughBuffered || (allPushed && leftStatus.topBufferCnt == 0 && rightStatus.topBufferCnt == 0)) {
+					left.set(ControlMode.MotionProfile, SetValueMotionProfile.Enable.value);
+					right.set(ControlMode.MotionProfile, SetValueMotionProfile.Enable.value);
+
+					state = STATE_RUNNING;
+				}
+				break;
+			}
+			case STATE_RUNNING:
+			{
+				int buffered = Math.min(leftStatus.btmBufferCnt, rightStatus.btmBufferCnt);
+
+				if (nextPointIndex < trajectory.size() && buffered < minBufferedPointCount) {
+					minBufferedPointCount = buffered; // only meaningful while there are points left to stream
+				}
+
+				if (leftStatus.activePointValid && leftStatus.isLast && rightStatus.activePointValid && rightStatus.isLast) {
+					left.set(ControlMode.MotionProfile, SetValueMotionProfile.Hold.value);
+					right.set(ControlMode.MotionProfile, SetValueMotionProfile.Hold.value);
+
+					state = STATE_DONE;
+				}
+				break;
+			}
+			default:
+			{
+			}
+		}
+	}
+
+	// pushes the next points to the API buffers (a few at a time)
+	private void fillTopBuffers() {
+		int size = trajectory.size();
+		int lastIndex = Math.min(size, nextPointIndex + MAX_POINTS_PUSHED_PER_RUN);
+
+		while (nextPointIndex < lastIndex && !left.isMotionProfileTopLevelBufferFull() && !right.isMotionProfileTopLevelBufferFull()) {
+			int index = nextPointIndex;
+
+			point.profileSlotSelect0 = slot;
+			point.profileSlotSelect1 = 0;
+			point.headingDeg = 0;
+			point.auxiliaryPos = 0;
+			point.arbFeedFwd = 0;
+			point.timeDur = trajectory.getPointDurationMs();
+			point.zeroPos = (index == 0); // the first point resets the sensor position
+			point.isLastPoint = (index == size - 1);
+
+			point.position = trajectory.getLeftPosition(index) * ticksPerInch;
+			point.velocity = trajectory.getLeftVelocity(index) * ticksPerInch / 10; // ticks per 100 ms
+			left.pushMotionProfileTrajectory(point);
+
+			point.position = trajectory.getRightPosition(index) * ticksPerInch;
+			point.velocity = trajectory.getRightVelocity(index) * ticksPerInch / 10;
+			right.pushMotionProfileTrajectory(point);
+
+			nextPointIndex++;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package frc.robot.util;
+
+/**
+ * This class estimates a value and its rate of change from noisy measurements taken at irregular times.
+ *
+ * <p>Each measurement is compared to where the estimate predicted it would be. A fraction (alpha) of the difference
+ * corrects the value and a fraction (beta) corrects the rate. Between measurements the value can be predicted
+ * from the rate, so users can read it more often than it is measured (e.g. a camera at 20 Hz read by a 100 Hz loop).
+ * Small alpha and beta mean more smoothing but more lag.
+ */
+public class AlphaBetaFilter {
+
+	static final double MIN_UPDATE_INTERVAL_SECONDS = 0.005; // measurements closer than this are ignored (the rate would blow up)
+
+	private final double alpha;
+	private final double beta;
+
+	private boolean isInitialized;
+	private double timestamp; // of the estimate (in seconds)
+	private double value;
+	private double rate; // in units per second
+
+
+	public AlphaBetaFilter(double alpha_in, double beta_in) {
+		alpha = alpha_in;
+		beta = beta_in;
+	}
+
+	// the next measurement will be taken as is (e.g. after we lost track of what we measure)
+	public void reset() {
+		isInitialized = false;
+		rate = 0;
+	}
+
+	public boolean isInitialized() {
+		return isInitialized;
+	}
+
+	// timestamp in seconds, measurements need to be given in chronological order
+	public void update(double timestamp_in, double measurement) {
+		if (!isInitialized) {
+			timestamp = timestamp_in;
+			value = measurement;
+			rate = 0; // unknown until we have two measurements
+			isInitialized = true;
+			return;
+		}
+
+		double dt = timestamp_in - timestamp;
+
+		if (dt < MIN_UPDATE_INTERVAL_SECONDS) { // (almost) the same time as last time
+			return;
+		}
+
+		double predicted = predict(timestamp_in);
+		double residual = measurement - predicted;
+
+		value = predicted + alpha * residual;
+		rate += beta * residual / dt;
+		timestamp = timestamp_in;
+	}
+
+	// returns the estimate at the time of the last measurement
+	public double getValue() {
+		return value;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	// returns the value predicted at the given time (using the rate)
+	public double predict(double timestamp_in) {
+		return value + rate * (timestamp_in - timestamp);
+	}
+}
@@ -0,0 +1,135 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+
+/**
+ * This class describes an auton route as a list of segments: paths, turns in place and deliveries.
+ *
+ * <p>Routes are written with moves and turns like our other autons. Consecutive moves in the same direction
+ * joined by corners become a single path, anything else ends the current path.
+ * The class does not depend on WPILib so routes can also be used off the robot (see {@link TrajectoryGenerator}).
+ */
+public class AutonRoute {
+
+	public static final int SEGMENT_PATH = 0;
+	public static final int SEGMENT_TURN = 1;
+	public static final int SEGMENT_HATCH_PANEL_DELIVERY = 2;
+	public static final int SEGMENT_CARGO_DELIVERY = 3;
+
+	private final String name;
+	private final PathBuilder builder = new PathBuilder(); // routes start at the origin of the odometry
+
+	private final ArrayList<Integer> types = new ArrayList<>();
+	private final ArrayList<Path> paths = new ArrayList<>(); // null unless the segment is a path
+	private final ArrayList<Double> angles = new ArrayList<>(); // 0 unless the segment is a turn
+	private int pathCount;
+	private boolean isEnded;
+
+
+	public AutonRoute(String name_in) {
+		name = name_in;
+	}
+
+	// moves the given distance in inches (negative to move backwards)
+	public AutonRoute move(double distance) {
+		checkNotEnded();
+
+		if (!builder.isEmpty() && builder.getDirection() != (distance >= 0 ? +1 : -1)) {
+			endPath(); // a path cannot change direction
+		}
+
+		builder.move(distance);
+		return this;
+	}
+
+	// turns by the given angle in degrees without stopping (clockwise positive)
+	public AutonRoute corner(double angle) {
+		checkNotEnded();
+
+		if (builder.isEmpty()) {
+			return turn(angle); // there is nothing to drive around
+		}
+
+		builder.turn(angle);
+		return this;
+	}
+
+	// stops and turns in place by the given angle in degrees (clockwise positive)
+	public AutonRoute turn(double angle) {
+		checkNotEnded();
+		endPath();
+
+		builder.turn(angle);
+		addSegment(SEGMENT_TURN, null, angle);
+		return this;
+	}
+
+	public AutonRoute deliverHatchPanel() {
+		checkNotEnded();
+		endPath();
+
+		addSegment(SEGMENT_HATCH_PANEL_DELIVERY, null, 0);
+		return this;
+	}
+
+	public AutonRoute deliverCargo() {
+		checkNotEnded();
+		endPath();
+
+		addSegment(SEGMENT_CARGO_DELIVERY, null, 0);
+		return this;
+	}
+
+	// needs to be called once the whole route has been described
+	public AutonRoute end() {
+		checkNotEnded();
+		endPath();
+
+		isEnded = true;
+		return this;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int size() {
+		return types.size();
+	}
+
+	public int getType(int index) {
+		return types.get(index);
+	}
+
+	public Path getPath(int index) {
+		return paths.get(index);
+	}
+
+	public double getAngle(int index) {
+		return angles.get(index);
+	}
+
+	// returns the number of path segments (i.e. the number of trajectories needed to drive the route)
+	public int getPathCount() {
+		return pathCount;
+	}
+
+	private void endPath() {
+		if (!builder.isEmpty()) {
+			addSegment(SEGMENT_PATH, builder.build(), 0);
+			pathCount++;
+		}
+	}
+
+	private void addSegment(int type, Path path, double angle) {
+		types.add(type);
+		paths.add(path);
+		angles.add(angle);
+	}
+
+	private void checkNotEnded() {
+		if (isEnded) {
+			throw new IllegalStateException("Route " + name + " has already ended.");
+		}
+	}
+}
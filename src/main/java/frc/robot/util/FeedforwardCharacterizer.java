@@ -0,0 +1,142 @@
+package frc.robot.util;
+
+/**
+ * This class records voltage and velocity samples while a mechanism is driven open loop and fits its
+ * feed forward constants (voltage = kS * sign(velocity) + kV * velocity + kA * acceleration) by least squares.
+ *
+ * <p>Samples are stored in primitive arrays allocated once. They are grouped in phases (e.g. a slow ramp, then a step)
+ * and the acceleration is only estimated between samples of the same phase.
+ */
+public class FeedforwardCharacterizer {
+
+	static final double MIN_VELOCITY = 1; // samples slower than this (in/s) are ignored as the mechanism may not have broken free yet
+	static final int MIN_SAMPLES = 20; // so the fit means something
+
+	private final double[] timestamps;
+	private final double[] voltages;
+	private final double[] velocities;
+	private final int[] phases;
+
+	private int size;
+	private int phase;
+
+
+	public FeedforwardCharacterizer(int capacity) {
+		timestamps = new double[capacity];
+		voltages = new double[capacity];
+		velocities = new double[capacity];
+		phases = new int[capacity];
+	}
+
+	public void clear() {
+		size = 0;
+		phase = 0;
+	}
+
+	// the next samples are not continuous with the previous ones
+	public void startPhase() {
+		phase++;
+	}
+
+	// returns false if the buffers are full (the sample is then dropped)
+	public boolean addSample(double timestamp, double voltage, double velocity) {
+		if (size == timestamps.length) {
+			return false;
+		}
+
+		timestamps[size] = timestamp;
+		voltages[size] = voltage;
+		velocities[size] = velocity;
+		phases[size] = phase;
+		size++;
+
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// returns the least squares fit of the samples, or null if there are not enough of them
+	public FeedforwardGains fit() {
+		// normal equations (X^T X) k = X^T y with X = [sign(v), v, a] and y = voltage
+		double[][] a = new double[3][4]; // augmented matrix
+		int count = 0;
+
+		for (int i = 1; i < size - 1; i++) {
+			if (phases[i - 1] != phases[i] || phases[i + 1] != phases[i] || Math.abs(velocities[i]) < MIN_VELOCITY) {
+				continue;
+			}
+
+			double dt = timestamps[i + 1] - timestamps[i - 1];
+
+			if (dt <= 0) {
+				continue;
+			}
+
+			double[] x = { Math.signum(velocities[i]), velocities[i], (velocities[i + 1] - velocities[i - 1]) / dt };
+
+			for (int r = 0; r < 3; r++) {
+				for (int c = 0; c < 3; c++) {
+					a[r][c] += x[r] * x[c];
+				}
+				a[r][3] += x[r] * voltages[i];
+			}
+
+			count++;
+		}
+
+		if (count < MIN_SAMPLES) {
+			return null;
+		}
+
+		double[] k = solve(a);
+
+		return k != null ? new FeedforwardGains(k[0], k[1], k[2]) : null;
+	}
+
+	// solves a 3x3 system given as an augmented matrix (Gaussian elimination with partial pivoting)
+	private static double[] solve(double[][] a) {
+		int n = a.length;
+
+		for (int col = 0; col < n; col++) {
+			int pivot = col;
+
+			for (int r = col + 1; r < n; r++) {
+				if (Math.abs(a[r][col]) > Math.abs(a[pivot][col])) {
+					pivot = r;
+				}
+			}
+
+			if (Math.abs(a[pivot][col]) < 1e-12) {
+				return null; // e.g. the acceleration never changed
+			}
+
+			double[] tmp = a[col];
+			a[col] = a[pivot];
+			a[pivot] = tmp;
+
+			for (int r = col + 1; r < n; r++) {
+				double factor = a[r][col] / a[col][col];
+
+				for (int c = col; c <= n; c++) {
+					a[r][c] -= factor * a[col][c];
+				}
+			}
+		}
+
+		double[] k = new double[n];
+
+		for (int r = n - 1; r >= 0; r--) {
+			double sum = a[r][n];
+
+			for (int c = r + 1; c < n; c++) {
+				sum -= a[r][c] * k[c];
+			}
+
+			k[r] = sum / a[r][r];
+		}
+
+		return k;
+	}
+}
@@ -0,0 +1,87 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * This class holds the feed forward constants of a drivetrain side: the voltage needed to overcome friction (kS),
+ * to hold a velocity (kV) and to accelerate (kA). Gains are immutable.
+ *
+ * <p>Velocities are in inches per second and accelerations in inches per second squared, from the robot's point
+ * of view. The gains can be saved to and loaded from a properties file (see DrivetrainCharacterize).
+ */
+public final class FeedforwardGains {
+
+	static final String KS_KEY = "kS";
+	static final String KV_KEY = "kV";
+	static final String KA_KEY = "kA";
+
+	private final double kS; // volts
+	private final double kV; // volts per inch per second
+	private final double kA; // volts per inch per second squared
+
+
+	public FeedforwardGains(double kS_in, double kV_in, double kA_in) {
+		kS = kS_in;
+		kV = kV_in;
+		kA = kA_in;
+	}
+
+	// returns the voltage needed for the given velocity and acceleration
+	public double calculate(double velocity, double acceleration) {
+		return kS * Math.signum(velocity) + kV * velocity + kA * acceleration;
+	}
+
+	public double getKS() {
+		return kS;
+	}
+
+	public double getKV() {
+		return kV;
+	}
+
+	public double getKA() {
+		return kA;
+	}
+
+	public void save(File file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(KS_KEY, Double.toString(kS));
+		properties.setProperty(KV_KEY, Double.toString(kV));
+		properties.setProperty(KA_KEY, Double.toString(kA));
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			properties.store(out, "Drivetrain feed forward (volts, inches, seconds)");
+		}
+	}
+
+	// returns the gains saved in the given file, or the defaults if the file is missing or invalid
+	public static FeedforwardGains load(File file, FeedforwardGains defaults) {
+		if (!file.isFile()) {
+			return defaults;
+		}
+
+		Properties properties = new Properties();
+
+		try (InputStream in = new FileInputStream(file)) {
+			properties.load(in);
+
+			return new FeedforwardGains(Double.parseDouble(properties.getProperty(KS_KEY)),
+				Double.parseDouble(properties.getProperty(KV_KEY)),
+				Double.parseDouble(properties.getProperty(KA_KEY)));
+		} catch (IOException | RuntimeException e) { // missing key or bad number
+			Telemetry.log("FeedforwardGains: cannot load " + file + ": " + e);
+			return defaults;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("kS=%.4f V, kV=%.5f V/(in/s), kA=%.5f V/(in/s^2)", kS, kV, kA);
+	}
+}
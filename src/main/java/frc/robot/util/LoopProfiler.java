@@ -0,0 +1,154 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+/**
+ * This class measures how long each phase of the main robot loop takes.
+ *
+ * <p>Each phase is timestamped with System.nanoTime() and the durations are accumulated
+ * in fixed-size histograms (preallocated, so nothing is allocated in the loop itself).
+ * Once per second the p50, p99 and max of each phase are published as a compact summary
+ * and the histograms are cleared.
+ */
+public class LoopProfiler {
+
+	public static final double PUBLISH_PERIOD_SECONDS = 1.0;
+
+	private static final long BUCKET_WIDTH_NANOS = 10000; // 10 us per bucket
+	private static final int NUMBER_OF_BUCKETS = 2500; // covers 25 ms, anything longer goes in the last bucket
+
+	private static final long LOOP_BUDGET_NANOS = 20000000; // 20 ms is the period used by the main loop
+
+	private final String[] names; // phase names followed by the whole loop and the loop period
+	private final int totalIndex; // index of the whole loop (start to end)
+	private final int periodIndex; // index of the loop period (start to start)
+
+	private final int[][] histograms;
+	private final int[] counts;
+	private final long[] maxNanos;
+
+	private long loopStartNanos;
+	private long lastMarkNanos;
+	private long previousLoopStartNanos;
+	private boolean isInLoop;
+
+	private int overrunCount; // number of loops over budget during the current publish period
+	private long lastPublishNanos;
+
+
+	public LoopProfiler(String... phaseNames) {
+		totalIndex = phaseNames.length;
+		periodIndex = phaseNames.length + 1;
+
+		names = new String[phaseNames.length + 2];
+		System.arraycopy(phaseNames, 0, names, 0, phaseNames.length);
+		names[totalIndex] = "total";
+		names[periodIndex] = "period";
+
+		histograms = new int[names.length][NUMBER_OF_BUCKETS];
+		counts = new int[names.length];
+		maxNanos = new long[names.length];
+
+		lastPublishNanos = System.nanoTime();
+	}
+
+	// this method needs to be called at the very beginning of the loop
+	public void startLoop() {
+		long now = System.nanoTime();
+
+		if (previousLoopStartNanos != 0) {
+			record(periodIndex, now - previousLoopStartNanos);
+		}
+
+		previousLoopStartNanos = now;
+		loopStartNanos = now;
+		lastMarkNanos = now;
+		isInLoop = true;
+	}
+
+	// records the time elapsed since the previous mark (or the start of the loop) against the given phase
+	public void mark(int phase) {
+		if (isInLoop) {
+			long now = System.nanoTime();
+
+			record(phase, now - lastMarkNanos);
+			lastMarkNanos = now;
+		}
+	}
+
+	// this method needs to be called at the very end of the loop
+	public void endLoop() {
+		if (isInLoop) {
+			long now = System.nanoTime();
+			long loopNanos = now - loopStartNanos;
+
+			record(totalIndex, loopNanos);
+
+			if (loopNanos > LOOP_BUDGET_NANOS) {
+				overrunCount++;
+			}
+
+			isInLoop = false;
+
+			if (now - lastPublishNanos >= PUBLISH_PERIOD_SECONDS * 1e9) {
+				publish();
+				lastPublishNanos = now;
+			}
+		}
+	}
+
+	private void record(int index, long nanos) {
+		int bucket = (int) Math.min(nanos / BUCKET_WIDTH_NANOS, NUMBER_OF_BUCKETS - 1);
+
+		histograms[index][bucket]++;
+		counts[index]++;
+
+		if (nanos > maxNanos[index]) {
+			maxNanos[index] = nanos;
+		}
+	}
+
+	// returns the upper bound of the bucket containing the given percentile (in ms)
+	private double getPercentileMs(int index, double percentile) {
+		int[] histogram = histograms[index];
+		int threshold = (int) Math.ceil(counts[index] * percentile);
+		int cumulated = 0;
+
+		for (int bucket = 0; bucket < NUMBER_OF_BUCKETS; bucket++) {
+			cumulated += histogram[bucket];
+
+			if (cumulated >= threshold) {
+				return (bucket + 1) * BUCKET_WIDTH_NANOS / 1e6;
+			}
+		}
+
+		return maxNanos[index] / 1e6;
+	}
+
+	// publishes a compact summary (p50/p99/max in ms for each phase) and starts a new period
+	private void publish() {
+		StringBuilder summary = new StringBuilder();
+
+		for (int index = 0; index < names.length; index++) {
+			if (counts[index] > 0) {
+				if (summary.length() > 0) {
+					summary.append(" | ");
+				}
+
+				summary.append(String.format("%s %.2f/%.2f/%.2f", names[index],
+					getPercentileMs(index, 0.50), getPercentileMs(index, 0.99), maxNanos[index] / 1e6));
+			}
+		}
+
+		Telemetry.putString("Loop Profile (p50/p99/max ms)", summary.toString());
+		Telemetry.putNumber("Loop p99 ms", counts[totalIndex] > 0 ? getPercentileMs(totalIndex, 0.99) : 0);
+		Telemetry.putNumber("Loop Overruns", overrunCount);
+
+		for (int index = 0; index < names.length; index++) {
+			Arrays.fill(histograms[index], 0);
+		}
+		Arrays.fill(counts, 0);
+		Arrays.fill(maxNanos, 0);
+		overrunCount = 0;
+	}
+}
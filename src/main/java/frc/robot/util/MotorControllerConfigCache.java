@@ -0,0 +1,160 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+/**
+ * This class wraps the blocking configXXX() calls of a motor controller (Talon SRX or Victor SPX).
+ *
+ * <p>It remembers the last value successfully applied to each parameter (and slot) and skips
+ * writes that would not change anything, so calling e.g. setNominalAndPeakOutputs() every time
+ * a move stops only costs CAN traffic (and up to the timeout) when something actually changed.
+ * A failed write is forgotten so it will be retried next time.
+ */
+public class MotorControllerConfigCache {
+
+	public static final int NUMBER_OF_SLOTS = 4; // Talon SRX and Victor SPX have four gain slots
+
+	// per slot parameters
+	private static final int K_P = 0;
+	private static final int K_I = 1;
+	private static final int K_D = 2;
+	private static final int K_F = 3;
+	private static final int ALLOWABLE_CLOSED_LOOP_ERROR = 4;
+	private static final int CLOSED_LOOP_PEAK_OUTPUT = 5;
+	private static final int NUMBER_OF_SLOT_PARAMETERS = 6;
+
+	// global parameters
+	private static final int PEAK_OUTPUT_FORWARD = 0;
+	private static final int PEAK_OUTPUT_REVERSE = 1;
+	private static final int NOMINAL_OUTPUT_FORWARD = 2;
+	private static final int NOMINAL_OUTPUT_REVERSE = 3;
+	private static final int MOTION_CRUISE_VELOCITY = 4;
+	private static final int MOTION_ACCELERATION = 5;
+	private static final int NUMBER_OF_PARAMETERS = 6;
+
+	private final BaseMotorController controller;
+
+	private final double[][] slotValues = new double[NUMBER_OF_SLOT_PARAMETERS][NUMBER_OF_SLOTS];
+	private final double[] values = new double[NUMBER_OF_PARAMETERS];
+
+
+	public MotorControllerConfigCache(BaseMotorController controller_in) {
+		controller = controller_in;
+
+		invalidate();
+	}
+
+	public BaseMotorController getController() {
+		return controller;
+	}
+
+	// forgets everything so the next writes will go through
+	public void invalidate() {
+		for (double[] slotValue : slotValues) {
+			Arrays.fill(slotValue, Double.NaN); // NaN is never equal to anything
+		}
+		Arrays.fill(values, Double.NaN);
+	}
+
+	// if the motor controller has reset (e.g. brownout) we cannot be sure of what it holds anymore,
+	// so we forget what we remember (this should be called periodically)
+	public boolean invalidateIfResetOccurred() {
+		if (controller.hasResetOccurred()) {
+			invalidate();
+			return true;
+		}
+		return false;
+	}
+
+	public ErrorCode config_kP(int slot, double value, int timeoutMs) {
+		if (slotValues[K_P][slot] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(slotValues[K_P], slot, value, controller.config_kP(slot, value, timeoutMs));
+	}
+
+	public ErrorCode config_kI(int slot, double value, int timeoutMs) {
+		if (slotValues[K_I][slot] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(slotValues[K_I], slot, value, controller.config_kI(slot, value, timeoutMs));
+	}
+
+	public ErrorCode config_kD(int slot, double value, int timeoutMs) {
+		if (slotValues[K_D][slot] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(slotValues[K_D], slot, value, controller.config_kD(slot, value, timeoutMs));
+	}
+
+	public ErrorCode config_kF(int slot, double value, int timeoutMs) {
+		if (slotValues[K_F][slot] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(slotValues[K_F], slot, value, controller.config_kF(slot, value, timeoutMs));
+	}
+
+	public ErrorCode configAllowableClosedloopError(int slot, int value, int timeoutMs) {
+		if (slotValues[ALLOWABLE_CLOSED_LOOP_ERROR][slot] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(slotValues[ALLOWABLE_CLOSED_LOOP_ERROR], slot, value, controller.configAllowableClosedloopError(slot, value, timeoutMs));
+	}
+
+	public ErrorCode configClosedLoopPeakOutput(int slot, double value, int timeoutMs) {
+		if (slotValues[CLOSED_LOOP_PEAK_OUTPUT][slot] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(slotValues[CLOSED_LOOP_PEAK_OUTPUT], slot, value, controller.configClosedLoopPeakOutput(slot, value, timeoutMs));
+	}
+
+	public ErrorCode configPeakOutputForward(double value, int timeoutMs) {
+		if (values[PEAK_OUTPUT_FORWARD] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(values, PEAK_OUTPUT_FORWARD, value, controller.configPeakOutputForward(value, timeoutMs));
+	}
+
+	public ErrorCode configPeakOutputReverse(double value, int timeoutMs) {
+		if (values[PEAK_OUTPUT_REVERSE] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(values, PEAK_OUTPUT_REVERSE, value, controller.configPeakOutputReverse(value, timeoutMs));
+	}
+
+	public ErrorCode configNominalOutputForward(double value, int timeoutMs) {
+		if (values[NOMINAL_OUTPUT_FORWARD] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(values, NOMINAL_OUTPUT_FORWARD, value, controller.configNominalOutputForward(value, timeoutMs));
+	}
+
+	public ErrorCode configNominalOutputReverse(double value, int timeoutMs) {
+		if (values[NOMINAL_OUTPUT_REVERSE] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(values, NOMINAL_OUTPUT_REVERSE, value, controller.configNominalOutputReverse(value, timeoutMs));
+	}
+
+	public ErrorCode configMotionCruiseVelocity(int value, int timeoutMs) {
+		if (values[MOTION_CRUISE_VELOCITY] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(values, MOTION_CRUISE_VELOCITY, value, controller.configMotionCruiseVelocity(value, timeoutMs));
+	}
+
+	public ErrorCode configMotionAcceleration(int value, int timeoutMs) {
+		if (values[MOTION_ACCELERATION] == value) {
+			return ErrorCode.OK;
+		}
+		return remember(values, MOTION_ACCELERATION, value, controller.configMotionAcceleration(value, timeoutMs));
+	}
+
+	private static ErrorCode remember(double[] cache, int index, double value, ErrorCode error) {
+		cache[index] = (error == ErrorCode.OK) ? value : Double.NaN; // if it failed we will try again next time
+		return error;
+	}
+}
@@ -0,0 +1,85 @@
+package frc.robot.util;
+
+import com.ctre.phoenix.motorcontrol.SensorCollection;
+import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * This class holds what a Talon SRX reported at one point in time.
+ *
+ * <p>A subsystem captures one snapshot per motor controller in its periodic() method and
+ * then reads everything (getters, triple-checks, dashboard) from it for the rest of the loop.
+ * This way each value costs a single call to the motor controller per loop, and every decision
+ * made during a loop is based on the same data. Snapshots are immutable so they can be shared.
+ */
+public final class MotorControllerSnapshot {
+
+	private final int position; // in ticks
+	private final int velocity; // in ticks per 100 ms
+	private final int closedLoopError; // in ticks
+	private final double outputCurrent; // in amps
+	private final double motorOutputPercent;
+	private final boolean isFwdLimitSwitchClosed;
+	private final boolean isRevLimitSwitchClosed;
+	private final double timestamp; // in seconds (FPGA time)
+
+
+	private MotorControllerSnapshot(int position_in, int velocity_in, int closedLoopError_in, double outputCurrent_in,
+		double motorOutputPercent_in, boolean isFwdLimitSwitchClosed_in, boolean isRevLimitSwitchClosed_in, double timestamp_in) {
+		position = position_in;
+		velocity = velocity_in;
+		closedLoopError = closedLoopError_in;
+		outputCurrent = outputCurrent_in;
+		motorOutputPercent = motorOutputPercent_in;
+		isFwdLimitSwitchClosed = isFwdLimitSwitchClosed_in;
+		isRevLimitSwitchClosed = isRevLimitSwitchClosed_in;
+		timestamp = timestamp_in;
+	}
+
+	// reads everything we need from the motor controller (this should be called once per loop)
+	public static MotorControllerSnapshot capture(TalonSRX talon, int pidLoop) {
+		SensorCollection sensors = talon.getSensorCollection();
+
+		return new MotorControllerSnapshot(talon.getSelectedSensorPosition(pidLoop),
+			talon.getSelectedSensorVelocity(pidLoop),
+			talon.getClosedLoopError(pidLoop),
+			talon.getOutputCurrent(),
+			talon.getMotorOutputPercent(),
+			sensors.isFwdLimitSwitchClosed(),
+			sensors.isRevLimitSwitchClosed(),
+			Timer.getFPGATimestamp());
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public int getVelocity() {
+		return velocity;
+	}
+
+	public int getClosedLoopError() {
+		return closedLoopError;
+	}
+
+	public double getOutputCurrent() {
+		return outputCurrent;
+	}
+
+	public double getMotorOutputPercent() {
+		return motorOutputPercent;
+	}
+
+	public boolean isFwdLimitSwitchClosed() {
+		return isFwdLimitSwitchClosed;
+	}
+
+	public boolean isRevLimitSwitchClosed() {
+		return isRevLimitSwitchClosed;
+	}
+
+	public double getTimestamp() {
+		return timestamp;
+	}
+}
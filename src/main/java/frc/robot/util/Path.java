@@ -0,0 +1,64 @@
+package frc.robot.util;
+
+/**
+ * This class holds a path as a list of waypoints the robot should drive through without stopping.
+ *
+ * <p>Waypoints are in inches in the same frame as the {@link Pose} given by the odometry.
+ * A reversed path is driven backwards. The cumulated distance along the path is precomputed for each waypoint.
+ */
+public class Path {
+
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] distances; // distance along the path from the first waypoint
+	private final boolean isReversed;
+
+
+	// the waypoints are given as x0, y0, x1, y1, ...
+	public Path(boolean isReversed_in, double... waypoints) {
+		if (waypoints.length < 4 || waypoints.length % 2 != 0) {
+			throw new IllegalArgumentException("A path needs at least two waypoints given as x, y pairs.");
+		}
+
+		int count = waypoints.length / 2;
+
+		xs = new double[count];
+		ys = new double[count];
+		distances = new double[count];
+		isReversed = isReversed_in;
+
+		for (int i = 0; i < count; i++) {
+			xs[i] = waypoints[2 * i];
+			ys[i] = waypoints[2 * i + 1];
+
+			if (i > 0) {
+				distances[i] = distances[i - 1] + Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+			}
+		}
+	}
+
+	public int size() {
+		return xs.length;
+	}
+
+	public double getX(int index) {
+		return xs[index];
+	}
+
+	public double getY(int index) {
+		return ys[index];
+	}
+
+	// returns the distance along the path from the first waypoint to the given waypoint
+	public double getDistance(int index) {
+		return distances[index];
+	}
+
+	public double getLength() {
+		return distances[distances.length - 1];
+	}
+
+	public boolean isReversed() {
+		return isReversed;
+	}
+}
@@ -0,0 +1,95 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+
+/**
+ * This class turns a sequence of moves and turns (like the ones our autons are written with) into paths.
+ *
+ * <p>It keeps track of where the robot should be, so each path starts where the previous move ended.
+ * Turns between two moves in the same direction become corners the robot drives around without stopping.
+ * A change of direction (forward to backward or the reverse) needs a new path.
+ */
+public class PathBuilder {
+
+	private double x, y, heading; // where the robot should be (heading in degrees, clockwise positive)
+
+	private final ArrayList<Double> waypoints = new ArrayList<>();
+	private int direction; // 0 until the first move of the current path, then +1 (forward) or -1 (backward)
+
+
+	public PathBuilder() {
+		this(0, 0, 0);
+	}
+
+	public PathBuilder(double x_in, double y_in, double heading_in) {
+		x = x_in;
+		y = y_in;
+		heading = heading_in;
+	}
+
+	// moves the given distance in inches (negative to move backwards)
+	public PathBuilder move(double distance) {
+		int moveDirection = distance >= 0 ? +1 : -1;
+
+		if (direction != 0 && moveDirection != direction) {
+			throw new IllegalStateException("A path cannot change direction, build() it first.");
+		}
+
+		if (waypoints.isEmpty()) {
+			addWaypoint();
+		}
+
+		x += distance * Math.cos(Math.toRadians(heading));
+		y += distance * Math.sin(Math.toRadians(heading));
+
+		addWaypoint();
+		direction = moveDirection;
+
+		return this;
+	}
+
+	// turns by the given angle in degrees (clockwise positive, like DrivetrainTurnAngleUsingPidController)
+	public PathBuilder turn(double angle) {
+		heading += angle;
+		return this;
+	}
+
+	// returns the path made of the moves since the last call and starts a new one from where it ends
+	public Path build() {
+		if (waypoints.size() < 4) {
+			throw new IllegalStateException("A path needs at least one move.");
+		}
+
+		double[] array = new double[waypoints.size()];
+
+		for (int i = 0; i < array.length; i++) {
+			array[i] = waypoints.get(i);
+		}
+
+		Path path = new Path(direction < 0, array);
+
+		waypoints.clear();
+		direction = 0;
+
+		return path;
+	}
+
+	// returns true if nothing was moved since the last path was built
+	public boolean isEmpty() {
+		return waypoints.isEmpty();
+	}
+
+	// returns +1 (forward) or -1 (backward) once something was moved, 0 otherwise
+	public int getDirection() {
+		return direction;
+	}
+
+	public double getHeading() {
+		return heading;
+	}
+
+	private void addWaypoint() {
+		waypoints.add(x);
+		waypoints.add(y);
+	}
+}
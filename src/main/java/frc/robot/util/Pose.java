@@ -0,0 +1,50 @@
+package frc.robot.util;
+
+/**
+ * This class holds the position and heading of the robot on the field at a given time.
+ *
+ * <p>Distances are in inches: x is along the direction the robot was facing when the pose was last set,
+ * y is to its right. The heading is in degrees and clockwise positive, like the gyro.
+ * Poses are immutable.
+ */
+public final class Pose {
+
+	private final double x;
+	private final double y;
+	private final double heading;
+	private final double timestamp; // in seconds (FPGA time)
+
+
+	public Pose(double x_in, double y_in, double heading_in, double timestamp_in) {
+		x = x_in;
+		y = y_in;
+		heading = heading_in;
+		timestamp = timestamp_in;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	public double getHeading() {
+		return heading;
+	}
+
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	// returns the distance in inches to the given point
+	public double getDistanceTo(double x_in, double y_in) {
+		return Math.hypot(x_in - x, y_in - y);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("(%.1f, %.1f, %.1f deg)", x, y, heading);
+	}
+}
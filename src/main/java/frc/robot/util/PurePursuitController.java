@@ -0,0 +1,183 @@
+package frc.robot.util;
+
+/**
+ * This class implements a pure pursuit path follower for a differential drivetrain.
+ *
+ * <p>At each update it finds the point of the path closest to the robot, picks a point a fixed distance further
+ * along the path and computes the arc that joins the robot to that point. The arc gives the ratio between
+ * the left and right wheel speeds, and the forward speed is ramped up and down using the distance left to go.
+ * Corners are therefore rounded and the robot does not stop until the end of the path.
+ *
+ * <p>Speeds are in inches per second, distances in inches.
+ */
+public class PurePursuitController {
+
+	static final int SEGMENT_SEARCH_WINDOW = 3; // number of segments ahead we look at when looking for the closest point
+
+	private final double lookaheadDistance;
+	private final double trackWidth;
+	private final double cruiseSpeed;
+	private final double acceleration; // also used for deceleration
+	private final double minSpeed; // so we do not stall short of the end
+	private final double endTolerance;
+
+	private Path path;
+	private int segment; // index of the segment the closest point is on (it never goes backwards)
+	private double progress; // distance along the path of the closest point
+	private double speed; // forward speed used for the last update
+	private double curvature;
+	private double leftSpeed, rightSpeed;
+	private boolean isDone;
+
+
+	public PurePursuitController(double lookaheadDistance_in, double trackWidth_in, double cruiseSpeed_in, double acceleration_in, double minSpeed_in, double endTolerance_in) {
+		lookaheadDistance = lookaheadDistance_in;
+		trackWidth = trackWidth_in;
+		cruiseSpeed = cruiseSpeed_in;
+		acceleration = acceleration_in;
+		minSpeed = minSpeed_in;
+		endTolerance = endTolerance_in;
+	}
+
+	public void start(Path path_in) {
+		path = path_in;
+		segment = 0;
+		progress = 0;
+		speed = 0;
+		curvature = 0;
+		leftSpeed = 0;
+		rightSpeed = 0;
+		isDone = false;
+	}
+
+	// computes the wheel speeds for the given pose (dt is the time elapsed since the last update in seconds)
+	public void update(Pose pose, double dt) {
+		if (path == null || isDone) {
+			leftSpeed = 0;
+			rightSpeed = 0;
+			return;
+		}
+
+		findClosestPoint(pose.getX(), pose.getY());
+
+		double remaining = path.getLength() - progress;
+
+		if (remaining < endTolerance) {
+			isDone = true;
+			leftSpeed = 0;
+			rightSpeed = 0;
+			return;
+		}
+
+		// where we are heading to, in the frame of the robot (forward, right)
+		double lookahead = progress + lookaheadDistance;
+		double dx = getXAt(lookahead) - pose.getX();
+		double dy = getYAt(lookahead) - pose.getY();
+		double heading = Math.toRadians(pose.getHeading());
+
+		double forward = dx * Math.cos(heading) + dy * Math.sin(heading);
+		double right = -dx * Math.sin(heading) + dy * Math.cos(heading);
+
+		if (path.isReversed()) { // we pretend the back of the robot is its front
+			forward = -forward;
+			right = -right;
+		}
+
+		double distanceSquared = forward * forward + right * right;
+		curvature = distanceSquared > 0 ? 2 * right / distanceSquared : 0; // positive when turning right
+
+		// trapezoidal speed profile based on the distance left to go
+		speed = Math.min(cruiseSpeed, speed + acceleration * dt);
+		speed = Math.min(speed, Math.sqrt(2 * acceleration * remaining));
+		speed = Math.max(speed, minSpeed);
+
+		double outerSpeed = speed * (1 + curvature * trackWidth / 2);
+		double innerSpeed = speed * (1 - curvature * trackWidth / 2);
+
+		// we slow down both sides if one of them would need to go faster than cruise speed
+		double max = Math.max(Math.abs(outerSpeed), Math.abs(innerSpeed));
+		if (max > cruiseSpeed) {
+			outerSpeed = outerSpeed * cruiseSpeed / max;
+			innerSpeed = innerSpeed * cruiseSpeed / max;
+		}
+
+		if (path.isReversed()) { // the left of the pretend robot is our right
+			leftSpeed = -innerSpeed;
+			rightSpeed = -outerSpeed;
+		} else {
+			leftSpeed = outerSpeed;
+			rightSpeed = innerSpeed;
+		}
+	}
+
+	public double getLeftSpeed() {
+		return leftSpeed;
+	}
+
+	public double getRightSpeed() {
+		return rightSpeed;
+	}
+
+	public double getCurvature() {
+		return curvature;
+	}
+
+	// returns the distance left to go along the path
+	public double getRemainingDistance() {
+		return path != null ? path.getLength() - progress : 0;
+	}
+
+	public boolean isDone() {
+		return isDone;
+	}
+
+	// updates segment and progress with the point of the path closest to (x, y)
+	private void findClosestPoint(double x, double y) {
+		double bestDistanceSquared = Double.MAX_VALUE;
+		int lastSegment = Math.min(segment + SEGMENT_SEARCH_WINDOW, path.size() - 2);
+
+		for (int i = segment; i <= lastSegment; i++) {
+			double x0 = path.getX(i), y0 = path.getY(i);
+			double sx = path.getX(i + 1) - x0, sy = path.getY(i + 1) - y0;
+			double lengthSquared = sx * sx + sy * sy;
+
+			double t = lengthSquared > 0 ? ((x - x0) * sx + (y - y0) * sy) / lengthSquared : 0;
+			t = Math.max(0, Math.min(1, t));
+
+			double px = x0 + t * sx - x, py = y0 + t * sy - y;
+			double distanceSquared = px * px + py * py;
+
+			if (distanceSquared < bestDistanceSquared) {
+				bestDistanceSquared = distanceSquared;
+				segment = i;
+				progress = Math.max(progress, path.getDistance(i) + t * Math.sqrt(lengthSquared)); // we never go back
+			}
+		}
+	}
+
+	// returns the x of the point at the given distance along the path (extended past the last waypoint if needed)
+	private double getXAt(double distance) {
+		int i = getSegmentAt(distance);
+		return path.getX(i) + (path.getX(i + 1) - path.getX(i)) * getFractionAt(i, distance);
+	}
+
+	private double getYAt(double distance) {
+		int i = getSegmentAt(distance);
+		return path.getY(i) + (path.getY(i + 1) - path.getY(i)) * getFractionAt(i, distance);
+	}
+
+	private int getSegmentAt(double distance) {
+		int i = segment;
+
+		while (i < path.size() - 2 && path.getDistance(i + 1) < distance) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private double getFractionAt(int i, double distance) {
+		double length = path.getDistance(i + 1) - path.getDistance(i);
+		return length > 0 ? (distance - path.getDistance(i)) / length : 0; // may be more than 1 on the last segment
+	}
+}
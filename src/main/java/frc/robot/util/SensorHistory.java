@@ -0,0 +1,139 @@
+package frc.robot.util;
+
+/**
+ * This class remembers the recent values of a few sensors so we can tell what they read at a given time.
+ *
+ * <p>This is what latency compensation needs: a camera frame is a few tens of milliseconds old when we get it,
+ * so it has to be combined with where the robot was when the frame was captured, not where it is now.
+ * Each sample has a timestamp and one value per channel (e.g. heading, left and right distances), all kept
+ * in fixed-size ring buffers of primitives so adding or looking up a sample never allocates. Lookups use a
+ * binary search and interpolate between samples. The methods are synchronized so the history can be written
+ * by one thread (e.g. a notifier) and read by others (e.g. PID controllers).
+ */
+public class SensorHistory {
+
+	private final long[] timestamps; // in microseconds (FPGA time)
+	private final double[][] values; // one array per channel
+
+	private int newest = -1; // index of the newest sample
+	private int size;
+
+
+	public SensorHistory(int capacity, int channelCount) {
+		timestamps = new long[capacity];
+		values = new double[channelCount][capacity];
+	}
+
+	public int getChannelCount() {
+		return values.length;
+	}
+
+	// timestamps need to be increasing, the sample needs one value per channel (it is copied so it can be reused)
+	public synchronized void add(long timestamp, double[] sample) {
+		newest = (newest + 1) % timestamps.length;
+		timestamps[newest] = timestamp;
+
+		for (int channel = 0; channel < values.length; channel++) {
+			values[channel][newest] = sample[channel];
+		}
+
+		if (size < timestamps.length) {
+			size++;
+		}
+	}
+
+	// this should be called when the sensors are reset (so we never mix values from before and after)
+	public synchronized void clear() {
+		newest = -1;
+		size = 0;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	// returns the timestamp of the newest sample (or Long.MIN_VALUE if there is none)
+	public synchronized long getNewestTimestamp() {
+		return size > 0 ? timestamps[newest] : Long.MIN_VALUE;
+	}
+
+	// returns the newest value of the channel (or NaN if there is none)
+	public synchronized double getNewest(int channel) {
+		return size > 0 ? values[channel][newest] : Double.NaN;
+	}
+
+	// returns the value of the channel at the given time (interpolated), the newest value if the time is more recent
+	// than all the samples, or NaN if the time is older than all the samples
+	public synchronized double get(long timestamp, int channel) {
+		int before = findSampleBefore(timestamp);
+
+		if (before < 0) {
+			return Double.NaN;
+		}
+
+		return interpolate(before, timestamp, channel);
+	}
+
+	// fills the sample with the values of all the channels at the given time and returns true,
+	// or returns false (leaving the sample untouched) if the time is older than all the samples
+	public synchronized boolean get(long timestamp, double[] sample) {
+		int before = findSampleBefore(timestamp);
+
+		if (before < 0) {
+			return false;
+		}
+
+		for (int channel = 0; channel < values.length; channel++) {
+			sample[channel] = interpolate(before, timestamp, channel);
+		}
+		return true;
+	}
+
+	// Private. Returns the index in the arrays of the last sample not after the given time (or -1 if there is none)
+	private int findSampleBefore(long timestamp) {
+		if (size == 0 || timestamp < timestamps[index(0)]) {
+			return -1;
+		}
+
+		if (timestamp >= timestamps[newest]) {
+			return newest;
+		}
+
+		// binary search (samples are numbered from the oldest)
+		int low = 0;
+		int high = size - 1;
+
+		while (high - low > 1) {
+			int middle = (low + high) / 2;
+
+			if (timestamps[index(middle)] <= timestamp) {
+				low = middle;
+			} else {
+				high = middle;
+			}
+		}
+		return index(low);
+	}
+
+	// Private. Interpolates between the given sample and the next one (if any)
+	private double interpolate(int before, long timestamp, int channel) {
+		if (before == newest) {
+			return values[channel][before];
+		}
+
+		int after = (before + 1) % timestamps.length;
+		long duration = timestamps[after] - timestamps[before];
+
+		if (duration <= 0) {
+			return values[channel][before];
+		}
+
+		double fraction = (double) (timestamp - timestamps[before]) / duration;
+		return values[channel][before] + (values[channel][after] - values[channel][before]) * fraction;
+	}
+
+	// Private. Returns the index in the arrays of the i-th sample (0 is the oldest)
+	private int index(int i) {
+		return (newest - size + 1 + i + timestamps.length) % timestamps.length;
+	}
+}
@@ -0,0 +1,114 @@
+package frc.robot.util;
+
+/**
+ * This class tells when a move is really done, i.e. when we have been on target for long enough.
+ *
+ * <p>On target means that the error and its rate of change are both within tolerance, so we do not declare victory
+ * while still going through the target. Unlike counting iterations this does not depend on how often update() is
+ * called (the time is taken from the timestamps given). Once settled the detector stays settled until it is reset
+ * (which should be done at the beginning of each move).
+ */
+public class SettleDetector {
+
+	static final double RATE_TIME_CONSTANT_SECONDS = 0.05; // smoothing of the estimated error rate
+
+	private final double errorTolerance;
+	private final double errorRateTolerance;
+	private final double settleTime; // in seconds
+
+	private boolean isOnTarget;
+	private double onTargetTimestamp; // when we got on target (in seconds)
+	private boolean hasJustFailed;
+	private boolean isSettled;
+
+	// used to estimate the error rate when it is not given
+	private boolean hasLastSample;
+	private double lastTimestamp;
+	private double lastError;
+	private double estimatedErrorRate = Double.POSITIVE_INFINITY; // unknown until we have two samples
+
+
+	public SettleDetector(double errorTolerance_in, double errorRateTolerance_in, double settleTime_in) {
+		errorTolerance = errorTolerance_in;
+		errorRateTolerance = errorRateTolerance_in;
+		settleTime = settleTime_in;
+	}
+
+	// for conditions that have no error (only the settle time is used)
+	public SettleDetector(double settleTime_in) {
+		this(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, settleTime_in);
+	}
+
+	public void reset() {
+		isOnTarget = false;
+		hasJustFailed = false;
+		isSettled = false;
+		hasLastSample = false;
+		estimatedErrorRate = Double.POSITIVE_INFINITY;
+	}
+
+	// timestamp in seconds, error rate in any unit consistent with the rate tolerance (e.g. ticks per 100 ms)
+	public boolean update(double timestamp, double error, double errorRate) {
+		return update(timestamp, Math.abs(error) < errorTolerance && Math.abs(errorRate) < errorRateTolerance);
+	}
+
+	// the error rate is estimated from the previous errors (in units per second)
+	public boolean update(double timestamp, double error) {
+		if (hasLastSample) {
+			double dt = timestamp - lastTimestamp;
+
+			if (dt <= 0) { // same sample as last time
+				return isSettled;
+			}
+
+			double errorRate = (error - lastError) / dt;
+
+			if (Double.isInfinite(estimatedErrorRate)) {
+				estimatedErrorRate = errorRate;
+			} else {
+				double alpha = 1 - Math.exp(-dt / RATE_TIME_CONSTANT_SECONDS);
+				estimatedErrorRate += alpha * (errorRate - estimatedErrorRate);
+			}
+		}
+
+		lastTimestamp = timestamp;
+		lastError = error;
+		hasLastSample = true;
+
+		return update(timestamp, error, estimatedErrorRate);
+	}
+
+	// timestamp in seconds, isOnTarget as assessed by the caller
+	public boolean update(double timestamp, boolean isOnTarget_in) {
+		hasJustFailed = false;
+
+		if (isOnTarget_in) {
+			if (!isOnTarget) { // we just got on target
+				onTargetTimestamp = timestamp;
+				isOnTarget = true;
+			}
+
+			if (timestamp - onTargetTimestamp >= settleTime) {
+				isSettled = true;
+			}
+		} else {
+			hasJustFailed = isOnTarget && !isSettled; // we were on target but not for long enough
+			isOnTarget = false;
+		}
+
+		return isSettled;
+	}
+
+	public boolean isSettled() {
+		return isSettled;
+	}
+
+	public boolean isOnTarget() {
+		return isOnTarget;
+	}
+
+	// returns true if the last update took us off target before we settled
+	public boolean hasJustFailed() {
+		return hasJustFailed;
+	}
+}
@@ -0,0 +1,104 @@
+package frc.robot.util;
+
+/**
+ * This class implements a PID controller that does not run its own thread.
+ *
+ * <p>It computes the same output as a WPILib PIDController (gains are per iteration, so they can be reused as is)
+ * but only when calculate() is called, which lets a single control loop run several controllers.
+ * The methods are synchronized so the controller can be checked from another thread than the one running it.
+ */
+public class SimplePIDController {
+
+	private final double p, i, d;
+
+	private double minimumInput, maximumInput;
+	private double minimumOutput = -1, maximumOutput = 1;
+	private boolean isContinuous;
+	private double tolerance;
+
+	private double setpoint;
+	private double error, previousError;
+	private double totalError;
+	private boolean hasError; // false until the first calculation since the last reset
+
+
+	public SimplePIDController(double p_in, double i_in, double d_in) {
+		p = p_in;
+		i = i_in;
+		d = d_in;
+	}
+
+	public synchronized void setInputRange(double minimumInput_in, double maximumInput_in) {
+		minimumInput = minimumInput_in;
+		maximumInput = maximumInput_in;
+	}
+
+	public synchronized void setOutputRange(double minimumOutput_in, double maximumOutput_in) {
+		minimumOutput = minimumOutput_in;
+		maximumOutput = maximumOutput_in;
+	}
+
+	// when continuous the minimum and maximum inputs are the same point (e.g. -180 and 180 degrees)
+	public synchronized void setContinuous(boolean isContinuous_in) {
+		isContinuous = isContinuous_in;
+	}
+
+	public synchronized void setAbsoluteTolerance(double tolerance_in) {
+		tolerance = tolerance_in;
+	}
+
+	// also resets the controller
+	public synchronized void setSetpoint(double setpoint_in) {
+		moveSetpoint(setpoint_in);
+		reset();
+	}
+
+	// changes the setpoint without resetting the controller (for targets that move while we are getting there)
+	public synchronized void moveSetpoint(double setpoint_in) {
+		if (maximumInput > minimumInput) {
+			setpoint = Math.max(minimumInput, Math.min(maximumInput, setpoint_in));
+		} else {
+			setpoint = setpoint_in;
+		}
+	}
+
+	public synchronized void reset() {
+		error = 0;
+		previousError = 0;
+		totalError = 0;
+		hasError = false;
+	}
+
+	// returns the output for the given input (needs to be called at a fixed period)
+	public synchronized double calculate(double input) {
+		error = setpoint - input;
+
+		if (isContinuous && maximumInput > minimumInput) {
+			double range = maximumInput - minimumInput;
+			error = Math.IEEEremainder(error, range); // the shortest way around
+		}
+
+		if (!hasError) {
+			previousError = error; // so the first derivative term is not a spike
+			hasError = true;
+		}
+
+		if (i != 0) { // we only integrate what can still change the output (anti-windup)
+			totalError = Math.max(minimumOutput / i, Math.min(maximumOutput / i, totalError + error));
+		}
+
+		double output = p * error + i * totalError + d * (error - previousError);
+		previousError = error;
+
+		return Math.max(minimumOutput, Math.min(maximumOutput, output));
+	}
+
+	// returns the error of the last calculation
+	public synchronized double getError() {
+		return error;
+	}
+
+	public synchronized boolean onTarget() {
+		return hasError && Math.abs(error) < tolerance;
+	}
+}
@@ -0,0 +1,83 @@
+package frc.robot.util;
+
+/**
+ * This class detects that a motor is stalled, i.e. that it is driven and draws current but does not move.
+ *
+ * <p>Each update tells whether the motor looks stalled (output and current above their thresholds, velocity below).
+ * This is smoothed by an exponentially weighted moving average so a few samples (e.g. while accelerating from rest)
+ * cannot trip the detector, but a real stall does within about 150 ms. Once tripped the detector stays stalled
+ * until it is reset (which should be done at the beginning of each move).
+ */
+public class StallDetector {
+
+	public static final double DEFAULT_TIME_CONSTANT_SECONDS = 0.065; // a constant stall trips the detector after about 150 ms
+	public static final double DEFAULT_SCORE_THRESHOLD = 0.9;
+
+	static final double MAX_DT_SECONDS = 0.1; // so a missed loop does not count as a long stall
+
+	private final double minOutput; // percent output (absolute value)
+	private final double maxVelocity; // in the units of the velocity given to update() (absolute value)
+	private final double minCurrent; // in amps
+	private final double timeConstant;
+	private final double scoreThreshold;
+
+	private double score; // between 0 (not stalled) and 1 (stalled for a while)
+	private double lastTimestamp;
+	private boolean hasLastTimestamp;
+	private boolean isStalled;
+
+
+	public StallDetector(double minOutput_in, double maxVelocity_in, double minCurrent_in) {
+		this(minOutput_in, maxVelocity_in, minCurrent_in, DEFAULT_TIME_CONSTANT_SECONDS, DEFAULT_SCORE_THRESHOLD);
+	}
+
+	public StallDetector(double minOutput_in, double maxVelocity_in, double minCurrent_in, double timeConstant_in, double scoreThreshold_in) {
+		minOutput = minOutput_in;
+		maxVelocity = maxVelocity_in;
+		minCurrent = minCurrent_in;
+		timeConstant = timeConstant_in;
+		scoreThreshold = scoreThreshold_in;
+	}
+
+	public void reset() {
+		score = 0;
+		hasLastTimestamp = false;
+		isStalled = false;
+	}
+
+	// updates the detector with what the motor controller reported and returns true if the motor is stalled
+	public boolean update(MotorControllerSnapshot snapshot) {
+		return update(snapshot.getTimestamp(), snapshot.getMotorOutputPercent(), snapshot.getVelocity(), snapshot.getOutputCurrent());
+	}
+
+	// timestamp in seconds, output in percent, velocity in any unit consistent with the threshold, current in amps
+	public boolean update(double timestamp, double output, double velocity, double current) {
+		double dt = hasLastTimestamp ? Math.min(timestamp - lastTimestamp, MAX_DT_SECONDS) : 0;
+
+		lastTimestamp = timestamp;
+		hasLastTimestamp = true;
+
+		if (dt <= 0) { // first update or same snapshot as last time
+			return isStalled;
+		}
+
+		boolean looksStalled = Math.abs(output) >= minOutput && Math.abs(velocity) < maxVelocity && current >= minCurrent;
+
+		double alpha = 1 - Math.exp(-dt / timeConstant); // the weight of the new sample depends on how long it lasted
+		score += alpha * ((looksStalled ? 1 : 0) - score);
+
+		if (score >= scoreThreshold) {
+			isStalled = true;
+		}
+
+		return isStalled;
+	}
+
+	public boolean isStalled() {
+		return isStalled;
+	}
+
+	public double getScore() {
+		return score;
+	}
+}
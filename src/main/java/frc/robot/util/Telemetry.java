@@ -0,0 +1,141 @@
+package frc.robot.util;
+
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * This class moves SmartDashboard/NetworkTables writes and console messages off the calling threads.
+ *
+ * <p>Callers only write primitive samples (and references to existing strings) into a preallocated
+ * ring buffer. Each calling thread gets its own single-producer/single-consumer buffer, and a
+ * low-priority background thread drains all the buffers into NetworkTables and the console.
+ */
+public final class Telemetry {
+
+	private static final int CHANNEL_CAPACITY = 1024; // samples per producing thread
+	private static final long DRAIN_PERIOD_MS = 10;
+
+	private static final CopyOnWriteArrayList<TelemetryRingBuffer> channels = new CopyOnWriteArrayList<>();
+
+	private static final ThreadLocal<TelemetryRingBuffer> channel = ThreadLocal.withInitial(() -> {
+		TelemetryRingBuffer buffer = new TelemetryRingBuffer(CHANNEL_CAPACITY);
+		channels.add(buffer);
+		return buffer;
+	});
+
+	private static Thread thread;
+
+
+	private Telemetry() {
+	}
+
+	// starts the background thread (can be called more than once)
+	public static synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(new Drainer(), "Telemetry");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		}
+	}
+
+	public static void putNumber(String key, double value) {
+		channel.get().offer(TelemetryRingBuffer.TYPE_NUMBER, key, value, null);
+	}
+
+	public static void putBoolean(String key, boolean value) {
+		channel.get().offer(TelemetryRingBuffer.TYPE_BOOLEAN, key, value ? 1 : 0, null);
+	}
+
+	public static void putString(String key, String value) {
+		channel.get().offer(TelemetryRingBuffer.TYPE_STRING, key, 0, value);
+	}
+
+	// replaces System.out.println() on time-sensitive threads
+	public static void log(String message) {
+		channel.get().offer(TelemetryRingBuffer.TYPE_MESSAGE, null, 0, message);
+	}
+
+	// returns the total number of samples dropped because a buffer was full
+	public static long getDroppedCount() {
+		long count = 0;
+
+		for (TelemetryRingBuffer buffer : channels) {
+			count += buffer.getDroppedCount();
+		}
+
+		return count;
+	}
+
+	/**
+	 * The {@code Drainer} is the consumer of all the ring buffers. It is the only place where the entries are written.
+	 */
+	private static class Drainer implements Runnable, TelemetryRingBuffer.Sink {
+		private final HashMap<String, NetworkTableEntry> entries = new HashMap<>(); // only used by this thread
+		private long lastDroppedCount;
+
+		@Override
+		public void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				for (TelemetryRingBuffer buffer : channels) {
+					buffer.drainTo(this);
+				}
+
+				long droppedCount = getDroppedCount();
+				if (droppedCount != lastDroppedCount) {
+					getEntry("Telemetry Dropped").setDouble(droppedCount);
+					lastDroppedCount = droppedCount;
+				}
+
+				try {
+					Thread.sleep(DRAIN_PERIOD_MS);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void accept(int type, String key, double value, String text) {
+			switch (type) {
+				case TelemetryRingBuffer.TYPE_NUMBER:
+				{
+					getEntry(key).setDouble(value);
+					break;
+				}
+				case TelemetryRingBuffer.TYPE_BOOLEAN:
+				{
+					getEntry(key).setBoolean(value != 0);
+					break;
+				}
+				case TelemetryRingBuffer.TYPE_STRING:
+				{
+					getEntry(key).setString(text);
+					break;
+				}
+				case TelemetryRingBuffer.TYPE_MESSAGE:
+				{
+					System.out.println(text);
+					break;
+				}
+				default:
+				{
+				}
+			}
+		}
+
+		private NetworkTableEntry getEntry(String key) {
+			NetworkTableEntry entry = entries.get(key);
+
+			if (entry == null) {
+				entry = SmartDashboard.getEntry(key); // looked up once per key
+				entries.put(key, entry);
+			}
+
+			return entry;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * This class publishes values to the SmartDashboard only when they need to be.
+ *
+ * <p>Each key is registered once with a getter, a publish rate and (for numbers) an epsilon.
+ * The getter is only called when the key is due according to its rate, and the value is only
+ * handed to {@link Telemetry} (which does the actual NetworkTables write on its own thread)
+ * when it changed by more than the epsilon since it was last published.
+ */
+public class TelemetryPublisher {
+
+	public static final double LOOP_RATE_HZ = 50; // publish() is expected to be called by the main loop
+
+	private static final int TYPE_NUMBER = 0;
+	private static final int TYPE_BOOLEAN = 1;
+	private static final int TYPE_STRING = 2;
+
+	private static class Key {
+		int type;
+		String name;
+		DoubleSupplier numberGetter;
+		BooleanSupplier booleanGetter;
+		Supplier<String> stringGetter;
+		double epsilon;
+		int divider; // the key is due every divider loops
+		int offset; // so keys sharing the same rate do not all fall due in the same loop
+		boolean hasBeenPublished;
+		double lastNumber;
+		boolean lastBoolean;
+		String lastString;
+	}
+
+	private final ArrayList<Key> registeredKeys = new ArrayList<>();
+	private Key[] keys = new Key[0];
+	private long loopCount;
+
+
+	public void addNumber(String name, DoubleSupplier getter, double epsilon, double rateHz) {
+		Key key = register(name, TYPE_NUMBER, rateHz);
+		key.numberGetter = getter;
+		key.epsilon = epsilon;
+	}
+
+	public void addBoolean(String name, BooleanSupplier getter, double rateHz) {
+		Key key = register(name, TYPE_BOOLEAN, rateHz);
+		key.booleanGetter = getter;
+	}
+
+	public void addString(String name, Supplier<String> getter, double rateHz) {
+		Key key = register(name, TYPE_STRING, rateHz);
+		key.stringGetter = getter;
+	}
+
+	private Key register(String name, int type, double rateHz) {
+		Key key = new Key();
+		key.type = type;
+		key.name = name;
+		key.divider = Math.max(1, (int) Math.round(LOOP_RATE_HZ / rateHz));
+		key.offset = registeredKeys.size() % key.divider;
+
+		registeredKeys.add(key);
+		keys = registeredKeys.toArray(new Key[registeredKeys.size()]);
+
+		return key;
+	}
+
+	// this method needs to be called once per loop
+	public void publish() {
+		for (Key key : keys) {
+			if (!key.hasBeenPublished || loopCount % key.divider == key.offset) {
+				publish(key);
+			}
+		}
+
+		loopCount++;
+	}
+
+	private void publish(Key key) {
+		switch (key.type) {
+			case TYPE_NUMBER:
+			{
+				double value = key.numberGetter.getAsDouble();
+
+				// NOTE: infinities compare equal to themselves so a target that stays out of sight is only published once
+				if (!key.hasBeenPublished || (value != key.lastNumber && !(Math.abs(value - key.lastNumber) <= key.epsilon))) {
+					Telemetry.putNumber(key.name, value);
+					key.lastNumber = value;
+					key.hasBeenPublished = true;
+				}
+				break;
+			}
+			case TYPE_BOOLEAN:
+			{
+				boolean value = key.booleanGetter.getAsBoolean();
+
+				if (!key.hasBeenPublished || value != key.lastBoolean) {
+					Telemetry.putBoolean(key.name, value);
+					key.lastBoolean = value;
+					key.hasBeenPublished = true;
+				}
+				break;
+			}
+			case TYPE_STRING:
+			{
+				String value = key.stringGetter.get();
+
+				if (value != null && (!key.hasBeenPublished || !value.equals(key.lastString))) {
+					Telemetry.putString(key.name, value);
+					key.lastString = value;
+					key.hasBeenPublished = true;
+				}
+				break;
+			}
+			default:
+			{
+			}
+		}
+	}
+}
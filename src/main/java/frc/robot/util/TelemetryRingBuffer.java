@@ -0,0 +1,91 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a lock-free single-producer/single-consumer ring buffer of telemetry samples.
+ *
+ * <p>All the slots are preallocated as parallel arrays, so offering a sample never allocates and never blocks:
+ * if the buffer is full the sample is dropped (and counted). Exactly one thread may offer and exactly one
+ * (other) thread may drain.
+ */
+public class TelemetryRingBuffer {
+
+	public static final int TYPE_NUMBER = 0;
+	public static final int TYPE_BOOLEAN = 1;
+	public static final int TYPE_STRING = 2;
+	public static final int TYPE_MESSAGE = 3;
+
+	/**
+	 * This interface allows the consumer to receive the samples without any allocation.
+	 */
+	public interface Sink {
+		void accept(int type, String key, double value, String text);
+	}
+
+	private final int mask;
+	private final int[] types;
+	private final String[] keys;
+	private final double[] values;
+	private final String[] texts;
+
+	private final AtomicLong head = new AtomicLong(); // next slot to be drained (only written by the consumer)
+	private final AtomicLong tail = new AtomicLong(); // next slot to be filled (only written by the producer)
+
+	private volatile long droppedCount;
+
+
+	// the capacity is rounded up to the next power of two
+	public TelemetryRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+
+		mask = size - 1;
+		types = new int[size];
+		keys = new String[size];
+		values = new double[size];
+		texts = new String[size];
+	}
+
+	// producer side - returns false if the sample had to be dropped
+	public boolean offer(int type, String key, double value, String text) {
+		long currentTail = tail.get();
+
+		if (currentTail - head.get() > mask) { // full
+			droppedCount++; // only the producer writes this field
+			return false;
+		}
+
+		int index = (int) (currentTail & mask);
+		types[index] = type;
+		keys[index] = key;
+		values[index] = value;
+		texts[index] = text;
+
+		tail.lazySet(currentTail + 1); // publishes the slot to the consumer
+
+		return true;
+	}
+
+	// consumer side - returns the number of samples drained
+	public int drainTo(Sink sink) {
+		long currentHead = head.get();
+		long currentTail = tail.get();
+
+		for (long position = currentHead; position < currentTail; position++) {
+			int index = (int) (position & mask);
+
+			sink.accept(types[index], keys[index], values[index], texts[index]);
+
+			keys[index] = null; // so we do not hold on to strings
+			texts[index] = null;
+		}
+
+		head.lazySet(currentTail); // gives the slots back to the producer
+
+		return (int) (currentTail - currentHead);
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+}
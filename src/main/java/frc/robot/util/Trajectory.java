@@ -0,0 +1,63 @@
+package frc.robot.util;
+
+/**
+ * This class holds a precomputed trajectory for the two sides of a differential drivetrain.
+ *
+ * <p>Points are evenly spaced in time. Positions are in inches and velocities in inches per second,
+ * both from the robot's point of view (forward is positive), so the same trajectory can be used
+ * regardless of how the sensors are mounted. Everything is kept in primitive arrays.
+ */
+public class Trajectory {
+
+	private final int pointDurationMs;
+
+	private final double[] leftPositions;
+	private final double[] leftVelocities;
+	private final double[] rightPositions;
+	private final double[] rightVelocities;
+
+
+	public Trajectory(int pointDurationMs_in, double[] leftPositions_in, double[] leftVelocities_in, double[] rightPositions_in, double[] rightVelocities_in) {
+		int length = leftPositions_in.length;
+
+		if (leftVelocities_in.length != length || rightPositions_in.length != length || rightVelocities_in.length != length) {
+			throw new IllegalArgumentException("All the arrays of a trajectory need to have the same length.");
+		}
+
+		pointDurationMs = pointDurationMs_in;
+
+		leftPositions = leftPositions_in;
+		leftVelocities = leftVelocities_in;
+		rightPositions = rightPositions_in;
+		rightVelocities = rightVelocities_in;
+	}
+
+	public int getPointDurationMs() {
+		return pointDurationMs;
+	}
+
+	public int size() {
+		return leftPositions.length;
+	}
+
+	// returns the duration of the whole trajectory in seconds
+	public double getDuration() {
+		return leftPositions.length * pointDurationMs / 1000.0;
+	}
+
+	public double getLeftPosition(int index) {
+		return leftPositions[index];
+	}
+
+	public double getLeftVelocity(int index) {
+		return leftVelocities[index];
+	}
+
+	public double getRightPosition(int index) {
+		return rightPositions[index];
+	}
+
+	public double getRightVelocity(int index) {
+		return rightVelocities[index];
+	}
+}
@@ -0,0 +1,146 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * This class reads and writes the binary files holding the precomputed trajectories of an auton route.
+ *
+ * <p>Layout (big endian): magic, version, number of trajectories, then for each trajectory its point duration in ms,
+ * its number of points and for each point the left position, left velocity, right position and right velocity
+ * as floats (inches and inches per second). Files are read through a memory-mapped FileChannel.
+ */
+public class TrajectoryFile {
+
+	public static final String DIRECTORY = "trajectories"; // under the deploy directory
+	public static final String EXTENSION = ".bin";
+
+	static final int MAGIC = 0x2495_7A11;
+	static final int VERSION = 1;
+
+	static final int HEADER_BYTES = 3 * Integer.BYTES;
+	static final int TRAJECTORY_HEADER_BYTES = 2 * Integer.BYTES;
+	static final int POINT_BYTES = 4 * Float.BYTES;
+
+
+	public static void write(File file, Trajectory[] trajectories) throws IOException {
+		int size = HEADER_BYTES;
+
+		for (Trajectory trajectory : trajectories) {
+			size += TRAJECTORY_HEADER_BYTES + trajectory.size() * POINT_BYTES;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(trajectories.length);
+
+		for (Trajectory trajectory : trajectories) {
+			buffer.putInt(trajectory.getPointDurationMs());
+			buffer.putInt(trajectory.size());
+
+			for (int i = 0; i < trajectory.size(); i++) {
+				buffer.putFloat((float) trajectory.getLeftPosition(i));
+				buffer.putFloat((float) trajectory.getLeftVelocity(i));
+				buffer.putFloat((float) trajectory.getRightPosition(i));
+				buffer.putFloat((float) trajectory.getRightVelocity(i));
+			}
+		}
+
+		buffer.flip();
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			channel.truncate(0);
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	// a corrupt or truncated file throws an IOException (the sizes are checked before anything is read or allocated)
+	public static Trajectory[] read(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException(file + " is not a trajectory file (or was written by another version)");
+			}
+
+			int trajectoryCount = buffer.getInt();
+
+			if (trajectoryCount < 0 || trajectoryCount > buffer.remaining() / TRAJECTORY_HEADER_BYTES) {
+				throw new IOException(file + " is corrupt (bad number of trajectories: " + trajectoryCount + ")");
+			}
+
+			Trajectory[] trajectories = new Trajectory[trajectoryCount];
+
+			for (int t = 0; t < trajectories.length; t++) {
+				if (buffer.remaining() < TRAJECTORY_HEADER_BYTES) {
+					throw new IOException(file + " is truncated");
+				}
+
+				int pointDurationMs = buffer.getInt();
+				int count = buffer.getInt();
+
+				if (pointDurationMs <= 0 || count <= 0) {
+					throw new IOException(file + " is corrupt (bad trajectory header)");
+				}
+
+				if (count > buffer.remaining() / POINT_BYTES) { // divided so it cannot overflow
+					throw new IOException(file + " is truncated");
+				}
+
+				double[] leftPositions = new double[count];
+				double[] leftVelocities = new double[count];
+				double[] rightPositions = new double[count];
+				double[] rightVelocities = new double[count];
+
+				for (int i = 0; i < count; i++) {
+					leftPositions[i] = buffer.getFloat();
+					leftVelocities[i] = buffer.getFloat();
+					rightPositions[i] = buffer.getFloat();
+					rightVelocities[i] = buffer.getFloat();
+				}
+
+				trajectories[t] = new Trajectory(pointDurationMs, leftPositions, leftVelocities, rightPositions, rightVelocities);
+			}
+
+			return trajectories;
+		} catch (BufferUnderflowException e) { // should not happen given the checks above, but a bad file must not crash the robot
+			throw new IOException(file + " is truncated", e);
+		}
+	}
+
+	// reads all the trajectory files of the given directory (keyed by route name), skipping the unreadable ones
+	public static Map<String, Trajectory[]> readAll(File directory) {
+		Map<String, Trajectory[]> routes = new HashMap<>();
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+
+		if (files == null) {
+			Telemetry.log("TrajectoryFile: no trajectories found in " + directory);
+			return routes;
+		}
+
+		for (File file : files) {
+			String name = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+
+			try {
+				routes.put(name, read(file));
+			} catch (IOException e) {
+				Telemetry.log("TrajectoryFile: cannot read " + file + ": " + e.getMessage());
+			}
+		}
+
+		return routes;
+	}
+}
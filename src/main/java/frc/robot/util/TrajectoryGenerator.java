@@ -0,0 +1,229 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import frc.robot.auton.AutonRoutes;
+import frc.robot.subsystems.Drivetrain;
+
+
+/**
+ * This class turns paths into time-parameterized trajectories for a differential drivetrain.
+ *
+ * <p>Corners are replaced by arcs, the speed along the path is limited by the curvature (so the outer wheel never
+ * exceeds the max speed) and by the acceleration (forward and backward passes), then the result is sampled at
+ * a fixed period. This is too slow to run at the beginning of auton, so it runs off the robot: main() writes
+ * the trajectories of all the routes in {@link AutonRoutes} to the deploy directory (see {@link TrajectoryFile}).
+ *
+ * <p>Usage: ./gradlew generateTrajectories (then deploy as usual)
+ */
+public class TrajectoryGenerator {
+
+	public static final int POINT_DURATION_MS = 10;
+
+	static final double SAMPLE_SPACING_INCHES = 0.5; // spacing of the samples the speed is computed at
+	static final double CORNER_RADIUS_INCHES = 24; // similar to the lookahead of the path follower
+
+	static final double MAX_SPEED_INCHES_PER_SECOND = 72; // 6 ft/s (same as the path follower)
+	static final double MAX_ACCELERATION_INCHES_PER_SECOND_SQUARED = 72;
+	static final double TRACK_WIDTH_INCHES = 2 * Drivetrain.RADIUS_DRIVEVETRAIN_INCHES;
+
+	private final double maxSpeed;
+	private final double maxAcceleration;
+	private final double trackWidth;
+	private final double cornerRadius;
+
+
+	public TrajectoryGenerator(double maxSpeed_in, double maxAcceleration_in, double trackWidth_in, double cornerRadius_in) {
+		maxSpeed = maxSpeed_in;
+		maxAcceleration = maxAcceleration_in;
+		trackWidth = trackWidth_in;
+		cornerRadius = cornerRadius_in;
+	}
+
+	public Trajectory generate(Path path) {
+		// the path as a list of small steps of constant curvature (positive when turning right)
+		int segmentCount = path.size() - 1;
+		double[] headings = new double[segmentCount];
+		double[] lengths = new double[segmentCount];
+
+		for (int i = 0; i < segmentCount; i++) {
+			double dx = path.getX(i + 1) - path.getX(i);
+			double dy = path.getY(i + 1) - path.getY(i);
+			headings[i] = Math.atan2(dy, dx);
+			lengths[i] = Math.hypot(dx, dy);
+		}
+
+		// cutbacks[i] is how much of the segments on each side of waypoint i is replaced by an arc
+		double[] cutbacks = new double[segmentCount + 1];
+		double[] cornerAngles = new double[segmentCount + 1];
+
+		for (int i = 1; i < segmentCount; i++) {
+			cornerAngles[i] = Math.IEEEremainder(headings[i] - headings[i - 1], 2 * Math.PI);
+			double cutback = cornerRadius * Math.tan(Math.abs(cornerAngles[i]) / 2);
+			cutbacks[i] = Math.min(cutback, Math.min(lengths[i - 1], lengths[i]) / 2);
+		}
+
+		StepList steps = new StepList();
+
+		for (int i = 0; i < segmentCount; i++) {
+			steps.add(lengths[i] - cutbacks[i] - cutbacks[i + 1], 0);
+
+			double angle = cornerAngles[i + 1];
+
+			if (Math.abs(angle) > 1e-6) {
+				double radius = cutbacks[i + 1] / Math.tan(Math.abs(angle) / 2);
+				steps.add(radius * Math.abs(angle), Math.signum(angle) / radius);
+			}
+		}
+
+		int n = steps.size();
+
+		// speed at each node (n steps so n + 1 nodes)
+		double[] speeds = new double[n + 1];
+
+		for (int k = 0; k <= n; k++) {
+			double curvature = Math.max(k > 0 ? Math.abs(steps.curvatures[k - 1]) : 0, k < n ? Math.abs(steps.curvatures[k]) : 0);
+			speeds[k] = maxSpeed / (1 + curvature * trackWidth / 2);
+		}
+
+		speeds[0] = 0;
+		speeds[n] = 0;
+
+		for (int k = 0; k < n; k++) { // forward pass (acceleration)
+			speeds[k + 1] = Math.min(speeds[k + 1], Math.sqrt(speeds[k] * speeds[k] + 2 * maxAcceleration * steps.lengths[k]));
+		}
+
+		for (int k = n - 1; k >= 0; k--) { // backward pass (deceleration)
+			speeds[k] = Math.min(speeds[k], Math.sqrt(speeds[k + 1] * speeds[k + 1] + 2 * maxAcceleration * steps.lengths[k]));
+		}
+
+		// time and wheel distances at each node
+		double[] times = new double[n + 1];
+		double[] leftDistances = new double[n + 1];
+		double[] rightDistances = new double[n + 1];
+
+		for (int k = 0; k < n; k++) {
+			double averageSpeed = (speeds[k] + speeds[k + 1]) / 2;
+			times[k + 1] = times[k] + (averageSpeed > 0 ? steps.lengths[k] / averageSpeed : 0);
+			leftDistances[k + 1] = leftDistances[k] + steps.lengths[k] * (1 + steps.curvatures[k] * trackWidth / 2);
+			rightDistances[k + 1] = rightDistances[k] + steps.lengths[k] * (1 - steps.curvatures[k] * trackWidth / 2);
+		}
+
+		// sampling at a fixed period (uniform acceleration within each step)
+		double period = POINT_DURATION_MS / 1000.0;
+		int count = (int) Math.ceil(times[n] / period) + 1;
+
+		double[] leftPositions = new double[count];
+		double[] leftVelocities = new double[count];
+		double[] rightPositions = new double[count];
+		double[] rightVelocities = new double[count];
+
+		int k = 0;
+
+		for (int j = 0; j < count; j++) {
+			double t = Math.min(j * period, times[n]);
+
+			while (k < n - 1 && times[k + 1] <= t) {
+				k++;
+			}
+
+			double duration = times[k + 1] - times[k];
+			double acceleration = duration > 0 ? (speeds[k + 1] - speeds[k]) / duration : 0;
+			double tau = Math.min(t - times[k], duration);
+
+			double speed = speeds[k] + acceleration * tau;
+			double distance = speeds[k] * tau + acceleration * tau * tau / 2;
+
+			double leftFactor = 1 + steps.curvatures[k] * trackWidth / 2;
+			double rightFactor = 1 - steps.curvatures[k] * trackWidth / 2;
+
+			double left = leftDistances[k] + distance * leftFactor;
+			double right = rightDistances[k] + distance * rightFactor;
+
+			if (path.isReversed()) { // the left of the pretend robot driving forward is our right
+				leftPositions[j] = -right;
+				leftVelocities[j] = -speed * rightFactor;
+				rightPositions[j] = -left;
+				rightVelocities[j] = -speed * leftFactor;
+			} else {
+				leftPositions[j] = left;
+				leftVelocities[j] = speed * leftFactor;
+				rightPositions[j] = right;
+				rightVelocities[j] = speed * rightFactor;
+			}
+		}
+
+		return new Trajectory(POINT_DURATION_MS, leftPositions, leftVelocities, rightPositions, rightVelocities);
+	}
+
+	public Trajectory[] generate(AutonRoute route) {
+		Trajectory[] trajectories = new Trajectory[route.getPathCount()];
+		int pathIndex = 0;
+
+		for (int i = 0; i < route.size(); i++) {
+			if (route.getType(i) == AutonRoute.SEGMENT_PATH) {
+				trajectories[pathIndex++] = generate(route.getPath(i));
+			}
+		}
+
+		return trajectories;
+	}
+
+	// writes the trajectories of all the routes to the directory given as argument
+	public static void main(String[] args) throws IOException {
+		File directory = new File(args.length > 0 ? args[0] : "src/main/deploy/" + TrajectoryFile.DIRECTORY);
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+
+		TrajectoryGenerator generator = new TrajectoryGenerator(MAX_SPEED_INCHES_PER_SECOND, MAX_ACCELERATION_INCHES_PER_SECOND_SQUARED,
+			TRACK_WIDTH_INCHES, CORNER_RADIUS_INCHES);
+
+		for (AutonRoute route : AutonRoutes.ALL) {
+			Trajectory[] trajectories = generator.generate(route);
+			File file = new File(directory, route.getName() + TrajectoryFile.EXTENSION);
+
+			TrajectoryFile.write(file, trajectories);
+
+			double duration = 0;
+			for (Trajectory trajectory : trajectories) {
+				duration += trajectory.getDuration();
+			}
+
+			System.out.println(String.format("%s: %d trajectories, %.2f s of driving, %d bytes", file, trajectories.length, duration, file.length()));
+		}
+	}
+
+	// a growable list of steps of constant curvature, each shorter than the sample spacing
+	private static class StepList {
+		double[] lengths = new double[256];
+		double[] curvatures = new double[256];
+		int size;
+
+		void add(double length, double curvature) {
+			if (length <= 0) {
+				return;
+			}
+
+			int count = (int) Math.ceil(length / SAMPLE_SPACING_INCHES);
+
+			for (int i = 0; i < count; i++) {
+				if (size == lengths.length) {
+					lengths = Arrays.copyOf(lengths, 2 * size);
+					curvatures = Arrays.copyOf(curvatures, 2 * size);
+				}
+
+				lengths[size] = length / count;
+				curvatures[size] = curvature;
+				size++;
+			}
+		}
+
+		int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package frc.robot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class FeedforwardCharacterizerTest {
+
+	static final double KS = 1.1;
+	static final double KV = 0.05;
+	static final double KA = 0.01;
+
+	static final double DT = 0.02;
+
+	static final double EPSILON = 1e-6;
+
+	@Test
+	public void fitsKnownGains() {
+		FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer(200);
+
+		// the velocity is quadratic so its central difference is the exact acceleration
+		for (int i = 0; i < 100; i++) {
+			double t = i * DT;
+			double velocity = 10 + 20 * t + 15 * t * t;
+			double acceleration = 20 + 30 * t;
+
+			characterizer.addSample(t, KS + KV * velocity + KA * acceleration, velocity);
+		}
+
+		FeedforwardGains gains = characterizer.fit();
+
+		assertNotNull(gains);
+		assertEquals(KS, gains.getKS(), EPSILON);
+		assertEquals(KV, gains.getKV(), EPSILON);
+		assertEquals(KA, gains.getKA(), EPSILON);
+	}
+
+	@Test
+	public void fitsBothDirectionsAcrossPhases() {
+		FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer(200);
+
+		for (int direction = -1; direction <= 1; direction += 2) {
+			characterizer.startPhase(); // the jump in velocity must not be seen as an acceleration
+
+			for (int i = 0; i < 50; i++) {
+				double t = i * DT;
+				double velocity = direction * (10 + 40 * t * t);
+				double acceleration = direction * 80 * t;
+
+				characterizer.addSample(t, KS * direction + KV * velocity + KA * acceleration, velocity);
+			}
+		}
+
+		FeedforwardGains gains = characterizer.fit();
+
+		assertNotNull(gains);
+		assertEquals(KS, gains.getKS(), EPSILON);
+		assertEquals(KV, gains.getKV(), EPSILON);
+		assertEquals(KA, gains.getKA(), EPSILON);
+	}
+
+	@Test
+	public void returnsNullWhenTheAccelerationNeverChanges() {
+		FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer(200);
+
+		for (int i = 0; i < 100; i++) { // constant velocity so the system is singular
+			characterizer.addSample(i * DT, KS + KV * 30, 30);
+		}
+
+		assertNull(characterizer.fit());
+	}
+
+	@Test
+	public void returnsNullWithoutEnoughSamples() {
+		FeedforwardCharacterizer characterizer = new FeedforwardCharacterizer(200);
+
+		for (int i = 0; i < 10; i++) {
+			double t = i * DT;
+			double velocity = 10 + 20 * t;
+
+			characterizer.addSample(t, KS + KV * velocity + KA * 20, velocity);
+		}
+
+		assertNull(characterizer.fit());
+	}
+}
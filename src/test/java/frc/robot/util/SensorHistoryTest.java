@@ -0,0 +1,87 @@
+package frc.robot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SensorHistoryTest {
+
+	static final double EPSILON = 1e-9;
+
+	// adds a sample whose channels are the given value and twice the value
+	private static void add(SensorHistory history, long timestamp, double value) {
+		history.add(timestamp, new double[] { value, 2 * value });
+	}
+
+	@Test
+	public void interpolatesBetweenSamples() {
+		SensorHistory history = new SensorHistory(10, 2);
+		add(history, 1000, 0);
+		add(history, 2000, 10);
+		add(history, 4000, 30);
+
+		assertEquals(5, history.get(1500, 0), EPSILON);
+		assertEquals(10, history.get(1500, 1), EPSILON);
+		assertEquals(25, history.get(3500, 0), EPSILON);
+		assertEquals(10, history.get(2000, 0), EPSILON); // exactly on a sample
+
+		double[] sample = new double[2];
+		assertTrue(history.get(3000, sample));
+		assertEquals(20, sample[0], EPSILON);
+		assertEquals(40, sample[1], EPSILON);
+	}
+
+	@Test
+	public void keepsTheNewestSamplesWhenFull() {
+		SensorHistory history = new SensorHistory(4, 2);
+
+		for (int i = 1; i <= 6; i++) { // wraps around the ring
+			add(history, i * 1000, i);
+		}
+
+		assertEquals(6000, history.getNewestTimestamp());
+		assertEquals(6, history.getNewest(0), EPSILON);
+		assertTrue(Double.isNaN(history.get(2500, 0))); // was overwritten
+		assertEquals(3, history.get(3000, 0), EPSILON); // the oldest left
+		assertEquals(4.5, history.get(4500, 0), EPSILON);
+		assertEquals(5.25, history.get(5250, 0), EPSILON);
+	}
+
+	@Test
+	public void returnsNaNBeforeTheOldestSample() {
+		SensorHistory history = new SensorHistory(10, 2);
+		assertTrue(Double.isNaN(history.get(1000, 0))); // empty
+
+		add(history, 1000, 1);
+		add(history, 2000, 2);
+
+		assertTrue(Double.isNaN(history.get(999, 0)));
+
+		double[] sample = { -1, -1 };
+		assertFalse(history.get(999, sample));
+		assertEquals(-1, sample[0], EPSILON); // untouched
+	}
+
+	@Test
+	public void returnsTheNewestValueAfterTheNewestSample() {
+		SensorHistory history = new SensorHistory(10, 2);
+		add(history, 1000, 1);
+		add(history, 2000, 2);
+
+		assertEquals(2, history.get(5000, 0), EPSILON);
+		assertEquals(4, history.get(5000, 1), EPSILON);
+	}
+
+	@Test
+	public void forgetsEverythingWhenCleared() {
+		SensorHistory history = new SensorHistory(10, 2);
+		add(history, 1000, 1);
+		history.clear();
+
+		assertTrue(history.isEmpty());
+		assertEquals(Long.MIN_VALUE, history.getNewestTimestamp());
+		assertTrue(Double.isNaN(history.get(1000, 0)));
+	}
+}